@@ -1,5 +1,11 @@
 package edu.asu.zoophy.rest;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
@@ -13,10 +19,18 @@ import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.zip.GZIPOutputStream;
+
+import javax.annotation.PostConstruct;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestMethod;
@@ -24,19 +38,34 @@ import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
 import edu.asu.zoophy.rest.custom.DownloadRecords;
 import edu.asu.zoophy.rest.custom.FastaRecord;
 import edu.asu.zoophy.rest.database.DaoException;
 import edu.asu.zoophy.rest.database.GenBankRecordNotFoundException;
+import edu.asu.zoophy.rest.database.RecordCacheStatistics;
 import edu.asu.zoophy.rest.database.ZooPhyDAO;
 import edu.asu.zoophy.rest.genbank.GenBankRecord;
 import edu.asu.zoophy.rest.genbank.Location;
 import edu.asu.zoophy.rest.genbank.PossibleLocation;
 import edu.asu.zoophy.rest.genbank.JobAccessions;
+import edu.asu.zoophy.rest.index.Facet;
+import edu.asu.zoophy.rest.index.FacetCounts;
 import edu.asu.zoophy.rest.index.InvalidLuceneQueryException;
 import edu.asu.zoophy.rest.index.LuceneHierarchySearcher;
 import edu.asu.zoophy.rest.index.LuceneSearcher;
 import edu.asu.zoophy.rest.index.LuceneSearcherException;
+import edu.asu.zoophy.rest.index.RecordField;
+import edu.asu.zoophy.rest.index.SearchPage;
+import edu.asu.zoophy.rest.index.SearchResultHandler;
+import edu.asu.zoophy.rest.index.SearchSort;
+import edu.asu.zoophy.rest.index.SearcherStatistics;
 import edu.asu.zoophy.rest.pipeline.PipelineException;
 import edu.asu.zoophy.rest.pipeline.PipelineManager;
 import edu.asu.zoophy.rest.pipeline.ZooPhyRunner;
@@ -77,6 +106,9 @@ public class ZooPhyController {
 	@Value("${query.max.records}")
 	private Integer QUERY_MAX_RECORDS;
 	
+	@Value("${query.max.stream.records:100000}")
+	private Integer QUERY_MAX_STREAM_RECORDS;
+	
 	@Value("${job.max.email.address}")
 	private Integer MAX_EMAIL_ADDRESS;
 	
@@ -86,8 +118,21 @@ public class ZooPhyController {
 	@Autowired
 	private PredictorTemplateGenerator templateGenerator;
 	
+	@Autowired
+	private ObjectMapper mapper;
+	
+	private ObjectWriter projectionWriter;
+	
 	private final static Logger log = Logger.getLogger("ZooPhyController");
 	
+	/**
+	 * Sets up the JSON writer for field projections, which leaves out fields that were not requested
+	 */
+	@PostConstruct
+	private void setUpProjectionWriter() {
+		projectionWriter = mapper.copy().setSerializationInclusion(JsonInclude.Include.NON_NULL).writer();
+	}
+	
 	/**
 	 * Simple check that REST services are running
 	 * @return message that services are running
@@ -129,6 +174,16 @@ public class ZooPhyController {
     	}
     }
     
+    /**
+     * Retrieve size and hit ratio details for the database record cache
+     * @return current RecordCacheStatistics
+     */
+    @RequestMapping(value="/record/stats", method=RequestMethod.GET)
+    @ResponseStatus(value=HttpStatus.OK)
+    public RecordCacheStatistics recordCacheStatistics() {
+    	return dao.getCacheStatistics();
+    }
+    
     /**
      * Returns the Geoname Location for the given Accession
      * @param accession
@@ -170,6 +225,30 @@ public class ZooPhyController {
     		throw new ParameterException(accession);
     	}
     }
+
+    /**
+     * Suggests Geonames locations for a typed prefix, most populous first
+     * @param prefix - location name prefix, optionally followed by ancestors, such as "Phoenix, Ari"
+     * @param limit - maximum suggestions
+     * @return suggested Locations
+     * @throws LuceneSearcherException
+     * @throws ParameterException
+     */
+    @RequestMapping(value="/location/suggest", method=RequestMethod.GET)
+    @ResponseStatus(value=HttpStatus.OK)
+    public List<Location> suggestLocations(@RequestParam(value="prefix") String prefix, @RequestParam(value="limit", required=false, defaultValue="10") Integer limit) throws LuceneSearcherException, ParameterException {
+    	if (security.checkParameter(prefix, Parameter.LOCATION)) {
+    		if (limit < 1 || limit > QUERY_MAX_RECORDS) {
+    			log.warning("Bad limit parameter: "+limit);
+    			throw new ParameterException(String.valueOf(limit));
+    		}
+    		return hierarchyIndexSearcher.suggestLocations(prefix, limit);
+    	}
+    	else {
+    		log.warning("Bad location prefix parameter: "+prefix);
+    		throw new ParameterException(prefix);
+    	}
+    }
     
     /**
      * Retrieve count of GenBankRecords for resulting Lucene query
@@ -192,9 +271,67 @@ public class ZooPhyController {
     	}
     }
 
+    /**
+     * Retrieve counts of GenBankRecords for resulting Lucene query per host, organism, country, gene and collection year
+     * @param query - Valid Lucene query string
+     * @param facets - optional comma separated facets to count, defaults to all of them
+     * @param limit - maximum values per facet
+     * @return FacetCounts of the given query
+     * @throws LuceneSearcherException 
+     * @throws InvalidLuceneQueryException 
+     * @throws ParameterException 
+     */
+    @RequestMapping(value="/search/facets", method=RequestMethod.GET)
+    @ResponseStatus(value=HttpStatus.OK)
+    public FacetCounts facetQueryLucene(@RequestParam(value="query") String query, @RequestParam(value="facets", required=false) String facets, @RequestParam(value="limit", required=false, defaultValue="25") Integer limit) throws LuceneSearcherException, InvalidLuceneQueryException, ParameterException {
+    	if (security.checkParameter(query, Parameter.LUCENE_QUERY)) {
+    		if (limit < 1 || limit > QUERY_MAX_RECORDS) {
+    			log.warning("Bad limit parameter: "+limit);
+    			throw new ParameterException(String.valueOf(limit));
+    		}
+    		List<Facet> facetList = new LinkedList<Facet>();
+    		if (facets == null || facets.trim().isEmpty()) {
+    			Collections.addAll(facetList, Facet.values());
+    		}
+    		else {
+    			for (String facet : facets.split(",")) {
+    				try {
+    					Facet requested = Facet.valueOf(facet.trim().toUpperCase());
+    					if (!facetList.contains(requested)) {
+    						facetList.add(requested);
+    					}
+    				}
+    				catch (IllegalArgumentException iae) {
+    					log.warning("Bad facets parameter: "+facets);
+    					throw new ParameterException(facets);
+    				}
+    			}
+    		}
+    		return indexSearcher.searchFacets(query, facetList, limit);
+    	}
+    	else {
+    		log.warning("Bad query parameter: "+query);
+    		throw new ParameterException(query);
+    	}
+    }
+
+    /**
+     * Retrieve reader generation and refresh details for the GenBank Index searcher, with search and Geoname location cache counts
+     * @return current SearcherStatistics
+     */
+    @RequestMapping(value="/search/stats", method=RequestMethod.GET)
+    @ResponseStatus(value=HttpStatus.OK)
+    public SearcherStatistics searchStatistics() {
+    	SearcherStatistics statistics = indexSearcher.getStatistics();
+    	hierarchyIndexSearcher.addLocationCacheStatistics(statistics);
+    	return statistics;
+    }
+
     /**
      * Retrieve GenBankRecords for resulting Lucene query
      * @param query - Valid Lucene query string
+     * @param sort - optional server side sort: date, accession or length. Results are sorted by accession if omitted.
+     * @param order - optional sort direction: asc or desc. Defaults to newest/longest first for date/length and A-Z for accession.
      * @return GenBankRecord results of given query.
      * @throws LuceneSearcherException 
      * @throws InvalidLuceneQueryException 
@@ -202,16 +339,19 @@ public class ZooPhyController {
      */
     @RequestMapping(value="/search", method=RequestMethod.GET)
     @ResponseStatus(value=HttpStatus.OK)
-    public List<GenBankRecord> queryLucene(@RequestParam(value="query") String query) throws LuceneSearcherException, InvalidLuceneQueryException, ParameterException {
+    public List<GenBankRecord> queryLucene(@RequestParam(value="query") String query, @RequestParam(value="sort", required=false) String sort, @RequestParam(value="order", required=false) String order) throws LuceneSearcherException, InvalidLuceneQueryException, ParameterException {
 	    	if (security.checkParameter(query, Parameter.LUCENE_QUERY)) {
 	    		log.info("Searching query: "+query);
-	    		List<GenBankRecord> results = indexSearcher.searchIndex(query, QUERY_MAX_RECORDS);
+	    		SearchSort searchSort = parseSort(sort);
+	    		List<GenBankRecord> results;
+	    		if (searchSort != null) {
+	    			results = indexSearcher.searchIndex(query, QUERY_MAX_RECORDS, null, searchSort, parseOrder(searchSort, order));
+	    		}
+	    		else {
+	    			results = indexSearcher.searchIndex(query, QUERY_MAX_RECORDS);
+	    			sortByAccession(results);
+	    		}
 	    		log.info("Successfully searched query: "+query);
-	    		Collections.sort(results, new Comparator<GenBankRecord>() {
-	    		    public int compare(GenBankRecord r1, GenBankRecord r2) {
-	    		        return r1.getAccession().compareTo(r2.getAccession());
-	    		    }
-	    		});
 	    		return results;
 	    	}
 	    	else {
@@ -220,6 +360,202 @@ public class ZooPhyController {
 	    	}
     }
     
+    /**
+     * Sorts search results by Accession, the default order for search results
+     * @param results - records to sort in place
+     */
+    private void sortByAccession(List<GenBankRecord> results) {
+    	Collections.sort(results, new Comparator<GenBankRecord>() {
+    	    public int compare(GenBankRecord r1, GenBankRecord r2) {
+    	        return r1.getAccession().compareTo(r2.getAccession());
+    	    }
+    	});
+    }
+    
+    /**
+     * Parses the sort parameter of a search
+     * @param sort - sort parameter, may be null
+     * @return the requested SearchSort, or null if none was requested
+     * @throws ParameterException if the sort is not recognized
+     */
+    private SearchSort parseSort(String sort) throws ParameterException {
+    	if (sort == null || sort.trim().isEmpty()) {
+    		return null;
+    	}
+    	try {
+    		return SearchSort.valueOf(sort.trim().toUpperCase());
+    	}
+    	catch (IllegalArgumentException iae) {
+    		log.warning("Bad sort parameter: "+sort);
+    		throw new ParameterException(sort);
+    	}
+    }
+    
+    /**
+     * Parses the order parameter of a sorted search
+     * @param sort - requested SearchSort
+     * @param order - asc, desc, or null for the sort's default direction
+     * @return true if the results should be in descending order
+     * @throws ParameterException if the order is not recognized
+     */
+    private boolean parseOrder(SearchSort sort, String order) throws ParameterException {
+    	if (order == null || order.trim().isEmpty()) {
+    		return sort.isDescendingByDefault();
+    	}
+    	else if (order.equalsIgnoreCase("desc")) {
+    		return true;
+    	}
+    	else if (order.equalsIgnoreCase("asc")) {
+    		return false;
+    	}
+    	log.warning("Bad order parameter: "+order);
+    	throw new ParameterException(order);
+    }
+    
+    /**
+     * Retrieve trimmed GenBankRecords for resulting Lucene query, with only the requested fields loaded from the Index.
+     * Fields that were not requested are left out of the JSON.
+     * @param query - Valid Lucene query string
+     * @param fields - comma separated RecordField names, such as "accession,date,country"
+     * @param sort - optional server side sort: date, accession or length. Results are sorted by accession if omitted.
+     * @param order - optional sort direction: asc or desc
+     * @return JSON of the trimmed GenBankRecord results of given query.
+     * @throws LuceneSearcherException 
+     * @throws InvalidLuceneQueryException 
+     * @throws ParameterException 
+     * @throws JsonProcessingException 
+     */
+    @RequestMapping(value="/search", method=RequestMethod.GET, params="fields")
+    public ResponseEntity<String> queryLuceneFields(@RequestParam(value="query") String query, @RequestParam(value="fields") String fields, @RequestParam(value="sort", required=false) String sort, @RequestParam(value="order", required=false) String order) throws LuceneSearcherException, InvalidLuceneQueryException, ParameterException, JsonProcessingException {
+    	if (security.checkParameter(query, Parameter.LUCENE_QUERY)) {
+    		Set<RecordField> recordFields;
+    		try {
+    			recordFields = RecordField.parse(fields);
+    		}
+    		catch (IllegalArgumentException iae) {
+    			log.warning("Bad fields parameter: "+fields);
+    			throw new ParameterException(fields);
+    		}
+    		log.info("Searching query: "+query+" with fields: "+recordFields);
+    		SearchSort searchSort = parseSort(sort);
+    		List<GenBankRecord> results;
+    		if (searchSort != null) {
+    			results = indexSearcher.searchIndex(query, QUERY_MAX_RECORDS, recordFields, searchSort, parseOrder(searchSort, order));
+    		}
+    		else {
+    			results = indexSearcher.searchIndex(query, QUERY_MAX_RECORDS, recordFields);
+    			sortByAccession(results);
+    		}
+    		log.info("Successfully searched query: "+query);
+    		String json = projectionWriter.writeValueAsString(results);
+    		return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON_UTF8).body(json);
+    	}
+    	else {
+    		log.warning("Bad query parameter: "+query);
+    		throw new ParameterException(query);
+    	}
+    }
+    
+    /**
+     * Stream GenBankRecords for resulting Lucene query as newline-delimited JSON, ordered by relevance, or in Index order for filter-only queries.
+     * The response is gzipped when the client accepts gzip encoding.
+     * Errors before any output is committed are reported like /search. A stream that fails after that ends with an {"error":...} line and the connection is dropped.
+     * @param query - Valid Lucene query string
+     * @param request
+     * @param response - response that each record is written to as soon as it is read
+     * @throws LuceneSearcherException 
+     * @throws InvalidLuceneQueryException 
+     * @throws ParameterException 
+     * @throws IOException 
+     */
+    @RequestMapping(value="/search/stream", method=RequestMethod.GET)
+    public void streamQueryLucene(@RequestParam(value="query") String query, HttpServletRequest request, HttpServletResponse response) throws LuceneSearcherException, InvalidLuceneQueryException, ParameterException, IOException {
+    	if (security.checkParameter(query, Parameter.LUCENE_QUERY)) {
+    		log.info("Streaming query: "+query);
+    		String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    		boolean isGzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    		response.setStatus(HttpStatus.OK.value());
+    		response.setContentType("application/x-ndjson");
+    		response.setCharacterEncoding("UTF-8");
+    		if (isGzip) {
+    			response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    		}
+    		//sync flush, so that an error line written after a failure reaches the client
+    		OutputStream out = isGzip ? new GZIPOutputStream(response.getOutputStream(), 8192, true) : response.getOutputStream();
+    		final JsonGenerator generator = mapper.getFactory().createGenerator(out);
+    		generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    		generator.setRootValueSeparator(null);
+    		final ObjectWriter writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+    		try {
+	    		int streamed = indexSearcher.streamIndex(query, QUERY_MAX_STREAM_RECORDS, new SearchResultHandler() {
+	    			@Override
+	    			public void handle(GenBankRecord record) throws IOException {
+	    				writer.writeValue(generator, record);
+	    				generator.writeRaw('\n');
+	    			}
+	    		});
+	    		try {
+	    			generator.close();
+	    		}
+	    		finally {
+	    			out.close();
+	    		}
+	    		log.info("Successfully streamed "+streamed+" records for query: "+query);
+    		}
+    		catch (LuceneSearcherException | InvalidLuceneQueryException | IOException | RuntimeException e) {
+    			if (!response.isCommitted()) {
+    				response.reset();
+    				throw e;
+    			}
+    			log.log(Level.SEVERE, "Aborted query stream after its output was committed: "+e.getMessage());
+    			try {
+    				generator.writeRaw("\n"+mapper.writeValueAsString(Collections.singletonMap("error", "Stream is incomplete"))+"\n");
+    				generator.flush();
+    			}
+    			catch (IOException ioe) {
+    				log.warning("Could not write the error line to the query stream: "+ioe.getMessage());
+    			}
+    			//rethrown without closing the generator, so the container drops the connection rather than ending the response, or the gzip stream, cleanly
+    			throw e;
+    		}
+    	}
+    	else {
+    		log.warning("Bad query parameter: "+query);
+    		throw new ParameterException(query);
+    	}
+    }
+    
+    /**
+     * Retrieve one page of GenBankRecords for resulting Lucene query
+     * @param query - Valid Lucene query string
+     * @param size - maximum records per page
+     * @param cursor - nextCursor from the previous page, omitted for the first page
+     * @return SearchPage of GenBankRecord results with the cursor for the next page
+     * @throws LuceneSearcherException 
+     * @throws InvalidLuceneQueryException 
+     * @throws ParameterException 
+     */
+    @RequestMapping(value="/search/page", method=RequestMethod.GET)
+    @ResponseStatus(value=HttpStatus.OK)
+    public SearchPage pageQueryLucene(@RequestParam(value="query") String query, @RequestParam(value="size", required=false, defaultValue="100") Integer size, @RequestParam(value="cursor", required=false) String cursor) throws LuceneSearcherException, InvalidLuceneQueryException, ParameterException {
+    	if (!security.checkParameter(query, Parameter.LUCENE_QUERY)) {
+    		log.warning("Bad query parameter: "+query);
+    		throw new ParameterException(query);
+    	}
+    	if (size < 1 || size > QUERY_MAX_RECORDS) {
+    		log.warning("Bad page size parameter: "+size);
+    		throw new ParameterException(String.valueOf(size));
+    	}
+    	if (cursor != null && !security.checkParameter(cursor, Parameter.SEARCH_CURSOR)) {
+    		log.warning("Bad cursor parameter: "+cursor);
+    		throw new ParameterException(cursor);
+    	}
+    	log.info("Searching page of query: "+query);
+    	SearchPage page = indexSearcher.searchPage(query, size, cursor);
+    	log.info("Successfully searched page of query: "+query);
+    	return page;
+    }
+    
     /**
      * As a results of HTTP Header size conflicts, this service is meant to query a long specific list of Accession.
      * @param accessions - Accessions to query
@@ -248,24 +584,9 @@ public class ZooPhyController {
     				throw new ParameterException(accession);
     			}
     		}
-    		List<String> usableAccessions = new LinkedList<String>(uniqueAccessions);
+    		List<String> usableAccessions = new ArrayList<String>(uniqueAccessions);
     		uniqueAccessions.clear();
-    		records = new LinkedList<GenBankRecord>();
-    		final int INDIVIDUAL_QUERY_LIMIT = 1024;
-    		int current;
-    		while (!usableAccessions.isEmpty()) {
-    			current = 0;
-	    		StringBuilder queryBuilder = new StringBuilder("Accession: (");
-	    		queryBuilder.append(usableAccessions.remove(0));
-	    		current++;
-	    		while (!usableAccessions.isEmpty() && current < INDIVIDUAL_QUERY_LIMIT) {
-	    			queryBuilder.append(" OR ");
-	    			queryBuilder.append(usableAccessions.remove(0));
-	    			current++;
-	    		}
-	    		queryBuilder.append(")");
-	    		records.addAll(indexSearcher.searchIndex(queryBuilder.toString(), INDIVIDUAL_QUERY_LIMIT));
-    		}
+    		records = indexSearcher.searchAccessions(usableAccessions);
     		log.info("Successfully searched accession list.");
     	}
     	else {
@@ -277,7 +598,7 @@ public class ZooPhyController {
     
     /**
      * Validate fasta contents and retrieve FASTA formatted records for display and eventual job run.
-     * @param records - fasta records to query
+     * @param records - fasta records to query, located by geonameID, location name or "latitude,longitude" coordinates
      * @return list of index FastaRecords with locations for the given Fasta
      * @throws ParameterException
      * @throws LuceneSearcherException
@@ -587,6 +908,94 @@ public class ZooPhyController {
     	}
     }
     
+    /**
+     * Stream the contents of GenBankRecords download in the specified format, writing each record as soon as it is read from the database.
+     * The response is gzipped when the client accepts gzip encoding. GenBank accessions that are not found are left out of the download.
+     * If writing fails after the response is committed, no error status can be sent anymore, so the download ends with an "ERROR: Download is incomplete" line and the connection is dropped.
+     * @param format - CSV or FASTA
+     * @param downloadRecords - records and columns to download
+     * @param request
+     * @param response - response that the download is written to
+     * @throws ParameterException
+     * @throws FormatterException
+     * @throws IOException
+     */
+    @RequestMapping(value="/download/stream", method=RequestMethod.POST)
+    public void streamDownload(@RequestParam(value="format") String format, @RequestBody DownloadRecords downloadRecords, HttpServletRequest request, HttpServletResponse response) throws ParameterException, FormatterException, IOException {
+    	log.info("Setting up streamed download...");
+    	List<JobRecord> records = downloadRecords.getAccessions();
+    	List<String> columns = downloadRecords.getColumns();
+    	if (columns == null || columns.size() == 0) {
+    		log.warning("Too few Columns for download");
+    		throw new ParameterException("columns");
+    	}
+    	DownloadFormat downloadFormat;
+    	if ("CSV".equalsIgnoreCase(format)) {
+    		downloadFormat = DownloadFormat.CSV;
+    	}
+    	else if ("FASTA".equalsIgnoreCase(format)) {
+    		downloadFormat = DownloadFormat.FASTA;
+    	}
+    	else {
+    		log.warning("Bad format parameter: "+format);
+    		throw new ParameterException(format);
+    	}
+    	if (records == null || records.size() == 0) {
+    		log.warning("Empty accession list.");
+    		throw new ParameterException("accessions list is empty");
+    	}
+    	if (records.size() > QUERY_MAX_STREAM_RECORDS) {
+    		log.warning("Too many accessions.");
+    		throw new ParameterException("accessions list is too long");
+    	}
+    	Set<JobRecord> downloadAccessions = new LinkedHashSet<JobRecord>(records.size());
+    	for (JobRecord record : records) {
+    		if  ((security.checkParameter(record.getId(), Parameter.ACCESSION) && record.getResourceSource() == JobConstants.SOURCE_GENBANK) || record.getResourceSource() == JobConstants.SOURCE_FASTA) {
+    			downloadAccessions.add(record);
+    		}
+    		else {
+    			log.warning("Bad accession parameter: "+record.getId());
+    			throw new ParameterException(record.getId());
+    		}
+    	}
+    	log.info("Columns selected: "+ columns );
+    	records = new LinkedList<JobRecord>(downloadAccessions);
+    	downloadAccessions.clear();
+    	String acceptEncoding = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+    	boolean isGzip = acceptEncoding != null && acceptEncoding.toLowerCase().contains("gzip");
+    	response.setStatus(HttpStatus.OK.value());
+    	response.setContentType(downloadFormat == DownloadFormat.CSV ? "text/csv" : "text/plain");
+    	response.setCharacterEncoding("UTF-8");
+    	if (isGzip) {
+    		response.setHeader(HttpHeaders.CONTENT_ENCODING, "gzip");
+    	}
+    	//sync flush, so that an error line written after a failure reaches the client
+    	OutputStream out = isGzip ? new GZIPOutputStream(response.getOutputStream(), 8192, true) : response.getOutputStream();
+    	Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 8192);
+    	log.info("Streaming "+downloadFormat+" download...");
+    	try {
+    		formatter.writeDownload(records, columns, downloadFormat, writer);
+    		writer.close();
+    	}
+    	catch (ParameterException | FormatterException | IOException e) {
+    		if (!response.isCommitted()) {
+    			response.reset();
+    			throw e;
+    		}
+    		log.log(Level.SEVERE, "Aborting streamed download after its output was committed: "+e.getMessage());
+    		try {
+    			writer.write("\nERROR: Download is incomplete\n");
+    			writer.flush();
+    		}
+    		catch (IOException ioe) {
+    			log.warning("Could not write the error line to the streamed download: "+ioe.getMessage());
+    		}
+    		//rethrown without closing the writer, so the container drops the connection rather than ending the response, or the gzip stream, cleanly
+    		throw e;
+    	}
+    	log.info("Successfully streamed download.");
+    }
+    
     /**
      * Generates a GLM Predictors template for users to fill in. Template already includes lat, long, and SampleSize.
      * @param accessions - Accessions to base template on
@@ -0,0 +1,91 @@
+package edu.asu.zoophy.rest.database;
+
+import java.io.IOException;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.springframework.jdbc.core.RowMapper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+import edu.asu.zoophy.rest.genbank.Gene;
+import edu.asu.zoophy.rest.genbank.PossibleLocation;
+
+/**
+ * Maps SQL row to GenBankRecord with all related details, where the row carries the record's genes as a text array,
+ * its possible locations as a JSON array, and its publication columns from a left join
+ * @author devdemetri
+ */
+public class FullGenBankRecordRowMapper implements RowMapper<GenBankRecord> {
+
+	private static final ObjectMapper json = new ObjectMapper();
+
+	private final GenBankRecordRowMapper recordMapper;
+	private final PublicationRowMapper publicationMapper = new PublicationRowMapper();
+
+	public FullGenBankRecordRowMapper() {
+		recordMapper = new GenBankRecordRowMapper();
+	}
+
+	/**
+	 * Maps rows without the Sequence column, giving each record a LazySequence
+	 * @param sequenceLoader - loader of each record's raw sequence on first read
+	 */
+	public FullGenBankRecordRowMapper(LazySequence.Loader sequenceLoader) {
+		recordMapper = new GenBankRecordRowMapper(sequenceLoader);
+	}
+
+	@Override
+	public GenBankRecord mapRow(ResultSet row, int rowNumber) throws SQLException {
+		GenBankRecord record = recordMapper.mapRow(row, rowNumber);
+		Array genes = row.getArray("Genes");
+		if (genes != null) {
+			for (Object name : (Object[]) genes.getArray()) {
+				Gene gene = new Gene();
+				gene.setAccession(record.getAccession());
+				gene.setName((String) name);
+				record.getGenes().add(gene);
+			}
+		}
+		record.setPossibleLocations(parsePossibleLocations(row.getString("Possible_Locations")));
+		if (row.getObject("Pubmed_ID") != null) {
+			record.setPublication(publicationMapper.mapRow(row, rowNumber));
+		}
+		return record;
+	}
+
+	/**
+	 * Decodes possible locations aggregated as a JSON array of objects keyed by Possible_Location column names
+	 * @param possibleLocations - JSON array, or null if the record has no possible locations
+	 * @return list of PossibleLocations
+	 * @throws SQLException if the JSON is malformed
+	 */
+	static List<PossibleLocation> parsePossibleLocations(String possibleLocations) throws SQLException {
+		List<PossibleLocation> locations = new LinkedList<PossibleLocation>();
+		if (possibleLocations == null) {
+			return locations;
+		}
+		try {
+			for (JsonNode node : json.readTree(possibleLocations)) {
+				PossibleLocation location = new PossibleLocation();
+				location.setGeonameID(node.path("Geoname_ID").asLong());
+				JsonNode name = node.path("Location");
+				location.setLocation(name.isTextual() ? name.asText() : null);
+				location.setLatitude(node.path("Latitude").asDouble());
+				location.setLongitude(node.path("Longitude").asDouble());
+				location.setProbability(node.path("probability").asDouble());
+				locations.add(location);
+			}
+		}
+		catch (IOException ioe) {
+			throw new SQLException("Malformed possible locations: "+ioe.getMessage(), ioe);
+		}
+		return locations;
+	}
+
+}
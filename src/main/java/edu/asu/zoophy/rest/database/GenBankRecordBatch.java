@@ -0,0 +1,40 @@
+package edu.asu.zoophy.rest.database;
+
+import java.util.LinkedHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+
+/**
+ * GenBankRecords retrieved in one batch, keyed by accession, along with the requested accessions that were not found
+ * @author devdemetri
+ */
+public class GenBankRecordBatch {
+
+	private Map<String, GenBankRecord> records;
+	private List<String> missingAccessions;
+
+	public GenBankRecordBatch() {
+		records = new LinkedHashMap<String, GenBankRecord>();
+		missingAccessions = new LinkedList<String>();
+	}
+
+	public Map<String, GenBankRecord> getRecords() {
+		return records;
+	}
+
+	public void setRecords(Map<String, GenBankRecord> records) {
+		this.records = records;
+	}
+
+	public List<String> getMissingAccessions() {
+		return missingAccessions;
+	}
+
+	public void setMissingAccessions(List<String> missingAccessions) {
+		this.missingAccessions = missingAccessions;
+	}
+
+}
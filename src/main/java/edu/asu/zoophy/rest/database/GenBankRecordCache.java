@@ -0,0 +1,169 @@
+package edu.asu.zoophy.rest.database;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+import edu.asu.zoophy.rest.genbank.Sequence;
+
+/**
+ * LRU cache of values read from the SQL database, bounded by approximate byte weight, where GenBankRecords weigh mostly by their raw sequence.
+ * Entries expire after a fixed time to live, and accessions that were not found are cached as well so repeated misses don't reach the database.
+ * @author devdemetri
+ */
+public class GenBankRecordCache {
+
+	/**
+	 * Cached value of a lookup that found nothing
+	 */
+	public final static Object NOT_FOUND = new Object();
+
+	private final static long ENTRY_OVERHEAD = 128;
+	private final static long OBJECT_OVERHEAD = 48;
+
+	private final long maxWeight;
+	private final long ttlNanos;
+	private final Map<String, CachedValue> values;
+	private long weight = 0;
+	private long hits = 0;
+	private long notFoundHits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+	private long expirations = 0;
+
+	private static class CachedValue {
+		private final Object value;
+		private final long weight;
+		private final long expiresAt;
+
+		CachedValue(Object value, long weight, long expiresAt) {
+			this.value = value;
+			this.weight = weight;
+			this.expiresAt = expiresAt;
+		}
+	}
+
+	/**
+	 * @param maxWeight - maximum approximate size of cached values in bytes, 0 disables caching
+	 * @param ttlMillis - milliseconds a cached value stays valid
+	 */
+	public GenBankRecordCache(long maxWeight, long ttlMillis) {
+		this.maxWeight = maxWeight;
+		this.ttlNanos = ttlMillis * 1000000L;
+		values = new LinkedHashMap<String, CachedValue>(256, 0.75f, true);
+	}
+
+	/**
+	 * Retrieves a cached value
+	 * @param key - cache key
+	 * @return the cached value, NOT_FOUND if the lookup is cached as missing, or null if not cached
+	 */
+	public synchronized Object get(String key) {
+		CachedValue cached = values.get(key);
+		if (cached != null && System.nanoTime() - cached.expiresAt >= 0) {
+			values.remove(key);
+			weight -= cached.weight;
+			expirations++;
+			cached = null;
+		}
+		if (cached == null) {
+			misses++;
+			return null;
+		}
+		hits++;
+		if (cached.value == NOT_FOUND) {
+			notFoundHits++;
+		}
+		return cached.value;
+	}
+
+	/**
+	 * Caches a value
+	 * @param key - cache key
+	 * @param value - value to cache
+	 * @param valueWeight - approximate size of the value in bytes
+	 */
+	public synchronized void put(String key, Object value, long valueWeight) {
+		CachedValue cached = new CachedValue(value, ENTRY_OVERHEAD + key.length() * 2 + valueWeight, System.nanoTime() + ttlNanos);
+		if (cached.weight > maxWeight) {
+			return;
+		}
+		CachedValue previous = values.put(key, cached);
+		if (previous != null) {
+			weight -= previous.weight;
+		}
+		weight += cached.weight;
+		Iterator<CachedValue> eldest = values.values().iterator();
+		while (weight > maxWeight && eldest.hasNext()) {
+			weight -= eldest.next().weight;
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Caches a lookup that found nothing
+	 * @param key - cache key
+	 */
+	public void putNotFound(String key) {
+		put(key, NOT_FOUND, 0);
+	}
+
+	/**
+	 * Approximates the heap size of a GenBankRecord, dominated by its raw sequence, without loading a LazySequence
+	 * @param record - record to weigh
+	 * @return approximate size in bytes
+	 */
+	static long weigh(GenBankRecord record) {
+		long recordWeight = OBJECT_OVERHEAD * 6;
+		Sequence sequence = record.getSequence();
+		boolean unloaded = sequence instanceof LazySequence && !((LazySequence) sequence).rawSequenceLoaded();
+		if (sequence != null && !unloaded && sequence.getRawSequence() != null) {
+			recordWeight += sequence.getRawSequence().length() * 2;
+		}
+		recordWeight += weigh(record.getGenes()) + weigh(record.getPossibleLocations());
+		return recordWeight;
+	}
+
+	/**
+	 * @param list - list of cached objects
+	 * @return approximate size of the list in bytes
+	 */
+	static long weigh(List<?> list) {
+		if (list == null) {
+			return 0;
+		}
+		return OBJECT_OVERHEAD * (1 + list.size() * 2);
+	}
+
+	public synchronized int size() {
+		return values.size();
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getNotFoundHits() {
+		return notFoundHits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	public synchronized long getExpirations() {
+		return expirations;
+	}
+
+}
@@ -0,0 +1,20 @@
+package edu.asu.zoophy.rest.database;
+
+import java.io.IOException;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+
+/**
+ * Receives GenBankRecords one at a time as they are read from the database
+ * @author devdemetri
+ */
+public interface GenBankRecordHandler {
+
+	/**
+	 * Handles a single record
+	 * @param record - GenBankRecord mapped from the current row
+	 * @throws IOException if the record could not be written
+	 */
+	void handle(GenBankRecord record) throws IOException;
+
+}
@@ -16,12 +16,26 @@ import edu.asu.zoophy.rest.genbank.Sequence;
  */
 public class GenBankRecordRowMapper implements RowMapper<GenBankRecord> {
 
+	private final LazySequence.Loader sequenceLoader;
+
+	public GenBankRecordRowMapper() {
+		sequenceLoader = null;
+	}
+
+	/**
+	 * Maps rows without the Sequence column, giving each record a LazySequence
+	 * @param sequenceLoader - loader of each record's raw sequence on first read
+	 */
+	public GenBankRecordRowMapper(LazySequence.Loader sequenceLoader) {
+		this.sequenceLoader = sequenceLoader;
+	}
+
 	@Override
 	public GenBankRecord mapRow(ResultSet row, int rowNumber) throws SQLException {
 		GenBankRecord record = new GenBankRecord();
 		final String recordAccession = row.getString("Accession");
 		record.setAccession(recordAccession);
-		Sequence sequence = new Sequence();
+		Sequence sequence = sequenceLoader == null ? new Sequence() : new LazySequence(sequenceLoader);
 		sequence.setAccession(recordAccession);
 		sequence.setUnNormalizedDate(row.getString("Collection_Date"));
 		sequence.setCollectionDate(row.getString("Normalized_Date"));
@@ -30,7 +44,9 @@ public class GenBankRecordRowMapper implements RowMapper<GenBankRecord> {
 		sequence.setIsolate(row.getString("Isolate"));
 		sequence.setOrganism(row.getString("Organism"));
 		sequence.setSegmentLength(row.getInt("Segment_Length"));
-		sequence.setRawSequence(row.getString("Sequence"));
+		if (sequenceLoader == null) {
+			sequence.setRawSequence(row.getString("Sequence"));
+		}
 		sequence.setStrain(row.getString("Strain"));
 		sequence.setTaxID(row.getInt("Tax_ID"));
 		sequence.setPH1N1(row.getBoolean("pH1N1"));
@@ -0,0 +1,92 @@
+package edu.asu.zoophy.rest.database;
+
+import edu.asu.zoophy.rest.genbank.Sequence;
+
+/**
+ * Sequence retrieved without its raw sequence text, which is loaded from the database the first time it is read.
+ * ZooPhyDAO.loadRawSequences fills many of them in bulk, so callers that do need the text for a whole job don't load it one record at a time.
+ * @author devdemetri
+ */
+public class LazySequence extends Sequence {
+
+	/**
+	 * Source of raw sequence text for a single accession
+	 */
+	public interface Loader {
+		/**
+		 * @param accession - accession of the sequence
+		 * @return raw sequence text, or null if there is none
+		 * @throws DaoException
+		 */
+		String loadRawSequence(String accession) throws DaoException;
+	}
+
+	private final Loader loader;
+	private volatile boolean loaded = false;
+
+	/**
+	 * @param loader - loader of the raw sequence text on first read
+	 */
+	public LazySequence(Loader loader) {
+		this.loader = loader;
+	}
+
+	/**
+	 * Loads the raw sequence text if it has not been loaded yet
+	 * @throws IllegalStateException if the raw sequence could not be loaded
+	 */
+	@Override
+	public String getRawSequence() {
+		if (!loaded) {
+			synchronized (this) {
+				if (!loaded) {
+					try {
+						super.setRawSequence(loader.loadRawSequence(getAccession()));
+					}
+					catch (DaoException de) {
+						throw new IllegalStateException("Could not load raw sequence for "+getAccession()+": "+de.getMessage(), de);
+					}
+					loaded = true;
+				}
+			}
+		}
+		return super.getRawSequence();
+	}
+
+	@Override
+	public synchronized void setRawSequence(String rawSequence) {
+		super.setRawSequence(rawSequence);
+		loaded = true;
+	}
+
+	/**
+	 * Not a bean getter, so that serializing the Sequence doesn't report it
+	 * @return true if the raw sequence text is already in memory
+	 */
+	public boolean rawSequenceLoaded() {
+		return loaded;
+	}
+
+	/**
+	 * @return copy of this Sequence sharing its Loader, with the raw sequence text only if it is already loaded
+	 */
+	public LazySequence copy() {
+		LazySequence copy = new LazySequence(loader);
+		copy.setAccession(getAccession());
+		copy.setDefinition(getDefinition());
+		copy.setTaxID(getTaxID());
+		copy.setOrganism(getOrganism());
+		copy.setIsolate(getIsolate());
+		copy.setStrain(getStrain());
+		copy.setUnNormalizedDate(getUnNormalizedDate());
+		copy.setCollectionDate(getCollectionDate());
+		copy.setComment(getComment());
+		copy.setSegmentLength(getSegmentLength());
+		copy.setPH1N1(getIsPH1N1());
+		if (loaded) {
+			copy.setRawSequence(super.getRawSequence());
+		}
+		return copy;
+	}
+
+}
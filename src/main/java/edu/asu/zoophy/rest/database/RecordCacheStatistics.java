@@ -0,0 +1,86 @@
+package edu.asu.zoophy.rest.database;
+
+/**
+ * Snapshot of the SQL record cache's size and hit ratio
+ * @author devdemetri
+ */
+public class RecordCacheStatistics {
+
+	private int size;
+	private long bytes;
+	private long hits;
+	private long notFoundHits;
+	private long misses;
+	private long evictions;
+	private long expirations;
+	private double hitRatio;
+
+	public RecordCacheStatistics() {
+
+	}
+
+	public int getSize() {
+		return size;
+	}
+
+	public void setSize(int size) {
+		this.size = size;
+	}
+
+	public long getBytes() {
+		return bytes;
+	}
+
+	public void setBytes(long bytes) {
+		this.bytes = bytes;
+	}
+
+	public long getHits() {
+		return hits;
+	}
+
+	public void setHits(long hits) {
+		this.hits = hits;
+	}
+
+	public long getNotFoundHits() {
+		return notFoundHits;
+	}
+
+	public void setNotFoundHits(long notFoundHits) {
+		this.notFoundHits = notFoundHits;
+	}
+
+	public long getMisses() {
+		return misses;
+	}
+
+	public void setMisses(long misses) {
+		this.misses = misses;
+	}
+
+	public long getEvictions() {
+		return evictions;
+	}
+
+	public void setEvictions(long evictions) {
+		this.evictions = evictions;
+	}
+
+	public long getExpirations() {
+		return expirations;
+	}
+
+	public void setExpirations(long expirations) {
+		this.expirations = expirations;
+	}
+
+	public double getHitRatio() {
+		return hitRatio;
+	}
+
+	public void setHitRatio(double hitRatio) {
+		this.hitRatio = hitRatio;
+	}
+
+}
@@ -1,19 +1,45 @@
 package edu.asu.zoophy.rest.database;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.annotation.PostConstruct;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
 import org.springframework.stereotype.Repository;
 
 import edu.asu.zoophy.rest.genbank.GenBankRecord;
+import edu.asu.zoophy.rest.genbank.Gene;
+import edu.asu.zoophy.rest.genbank.Host;
 import edu.asu.zoophy.rest.genbank.Location;
 import edu.asu.zoophy.rest.genbank.PossibleLocation;
+import edu.asu.zoophy.rest.genbank.Publication;
+import edu.asu.zoophy.rest.genbank.Sequence;
 import edu.asu.zoophy.rest.pipeline.glm.Predictor;
 
 /**
@@ -26,16 +52,62 @@ public class ZooPhyDAO {
 	@Autowired
     private JdbcTemplate jdbc;
 	
+	@Value("${db.batch.size:1000}")
+	private int batchSize;
+	
+	@Value("${db.stream.fetch.size:500}")
+	private int streamFetchSize;
+	
+	@Value("${db.stream.timeout.seconds:600}")
+	private int streamTimeoutSeconds;
+	
+	private final GenBankRecordCache recordCache;
+	private final LazySequence.Loader sequenceLoader = new LazySequence.Loader() {
+		@Override
+		public String loadRawSequence(String accession) throws DaoException {
+			return retrieveRawSequence(accession);
+		}
+	};
+	
 	private static final String PULL_RECORD_DETAILS = "SELECT \"Sequence_Details\".\"Accession\", \"Normalized_Date\", \"Collection_Date\", \"Comment\", \"Definition\", \"Isolate\", \"Tax_ID\", \"Organism\", \"Strain\", \"Sequence\", \"Segment_Length\", \"pH1N1\", \"Host_Name\", \"Host_taxon\", \"Geoname_ID\", \"Location\", \"Latitude\", \"Longitude\", \"Type\", \"State\", \"Country\" FROM \"Sequence_Details\" JOIN \"Host\" ON \"Sequence_Details\".\"Accession\"=\"Host\".\"Accession\" JOIN \"Location_Geoname\" ON \"Sequence_Details\".\"Accession\"=\"Location_Geoname\".\"Accession\" JOIN \"Sequence\" ON \"Sequence_Details\".\"Accession\"=\"Sequence\".\"Accession\" WHERE \"Sequence_Details\".\"Accession\"=?";
-	private static final String PULL_RECORD_GENES = "SELECT DISTINCT \"Accession\", \"Normalized_Gene_Name\" FROM \"Gene\" WHERE \"Accession\"=?  AND \"Normalized_Gene_Name\" IS NOT NULL";
-	private static final String PULL_RECORD_PUBLICATION = "SELECT \"Accession\", \"Pubmed_ID\", \"Pubmed_Central_ID\", \"Authors\", \"Title\", \"Journal\" FROM \"Sequence_Publication\" JOIN \"Publication\" ON \"Sequence_Publication\".\"Pub_ID\"=\"Publication\".\"Pubmed_ID\" WHERE \"Accession\"=?";
+	private static final String RECORD_DETAIL_COLUMNS = "\"Sequence_Details\".\"Accession\", \"Normalized_Date\", \"Collection_Date\", \"Comment\", \"Definition\", \"Isolate\", \"Tax_ID\", \"Organism\", \"Strain\", \"Segment_Length\", \"pH1N1\", \"Host_Name\", \"Host_taxon\", \"Geoname_ID\", \"Location\", \"Latitude\", \"Longitude\", \"Type\", \"State\", \"Country\"";
+	private static final String RECORD_NESTED_COLUMNS = "ARRAY(SELECT DISTINCT \"Normalized_Gene_Name\" FROM \"Gene\" WHERE \"Gene\".\"Accession\"=\"Sequence_Details\".\"Accession\" AND \"Normalized_Gene_Name\" IS NOT NULL) AS \"Genes\", "
+	+ "(SELECT json_agg(json_build_object('Geoname_ID', \"Possible_Location\".\"Geoname_ID\", 'Location', \"Possible_Location\".\"Location\", 'Latitude', \"Possible_Location\".\"Latitude\", 'Longitude', \"Possible_Location\".\"Longitude\", 'probability', \"Possible_Location\".\"probability\")) FROM \"Possible_Location\" WHERE \"Possible_Location\".\"Accession\"=\"Sequence_Details\".\"Accession\") AS \"Possible_Locations\", "
+	+ "\"Pub\".\"Pubmed_ID\", \"Pub\".\"Pubmed_Central_ID\", \"Pub\".\"Authors\", \"Pub\".\"Title\", \"Pub\".\"Journal\" ";
+	private static final String RECORD_DETAIL_JOINS = "JOIN \"Host\" ON \"Sequence_Details\".\"Accession\"=\"Host\".\"Accession\" JOIN \"Location_Geoname\" ON \"Sequence_Details\".\"Accession\"=\"Location_Geoname\".\"Accession\" JOIN \"Sequence\" ON \"Sequence_Details\".\"Accession\"=\"Sequence\".\"Accession\" ";
+	private static final String RECORD_PUBLICATION_JOIN = "LEFT JOIN LATERAL (SELECT \"Pubmed_ID\", \"Pubmed_Central_ID\", \"Authors\", \"Title\", \"Journal\" FROM \"Sequence_Publication\" JOIN \"Publication\" ON \"Sequence_Publication\".\"Pub_ID\"=\"Publication\".\"Pubmed_ID\" WHERE \"Sequence_Publication\".\"Accession\"=\"Sequence_Details\".\"Accession\" ORDER BY \"Pubmed_ID\" LIMIT 1) AS \"Pub\" ON TRUE ";
+	private static final String REQUESTED_RECORDS = "unnest(?::varchar[]) WITH ORDINALITY AS \"Requested\"(\"Accession\", \"Position\") JOIN \"Sequence_Details\" ON \"Sequence_Details\".\"Accession\"=\"Requested\".\"Accession\" ";
+	private static final String PULL_FULL_RECORD = "SELECT " + RECORD_DETAIL_COLUMNS + ", \"Sequence\", " + RECORD_NESTED_COLUMNS + "FROM \"Sequence_Details\" " + RECORD_DETAIL_JOINS + RECORD_PUBLICATION_JOIN + "WHERE \"Sequence_Details\".\"Accession\"=?";
 	private static final String PULL_RECORD_LOCATION = "SELECT \"Accession\", \"Geoname_ID\", \"Location\", \"Latitude\", \"Longitude\", \"Type\", \"State\", \"Country\" FROM \"Location_Geoname\" WHERE \"Accession\"=?";
 	private static final String PULL_RECORD_POSSIBLE_LOCATIONS = "SELECT \"Accession\", \"Geoname_ID\", \"Location\", \"Latitude\", \"Longitude\", \"probability\" FROM \"Possible_Location\" WHERE \"Accession\"=?";
+	private static final String PULL_BATCH_DETAILS = "SELECT " + RECORD_DETAIL_COLUMNS + ", \"Sequence\" FROM \"Sequence_Details\" " + RECORD_DETAIL_JOINS + "WHERE \"Sequence_Details\".\"Accession\"=ANY(?)";
+	private static final String PULL_BATCH_METADATA = "SELECT " + RECORD_DETAIL_COLUMNS + " FROM \"Sequence_Details\" " + RECORD_DETAIL_JOINS + "WHERE \"Sequence_Details\".\"Accession\"=ANY(?)";
+	private static final String PULL_BATCH_GENES = "SELECT DISTINCT \"Accession\", \"Normalized_Gene_Name\" FROM \"Gene\" WHERE \"Accession\"=ANY(?) AND \"Normalized_Gene_Name\" IS NOT NULL";
+	private static final String PULL_BATCH_PUBLICATION = "SELECT \"Accession\", \"Pubmed_ID\", \"Pubmed_Central_ID\", \"Authors\", \"Title\", \"Journal\" FROM \"Sequence_Publication\" JOIN \"Publication\" ON \"Sequence_Publication\".\"Pub_ID\"=\"Publication\".\"Pubmed_ID\" WHERE \"Accession\"=ANY(?) ORDER BY \"Pubmed_ID\"";
+	private static final String PULL_BATCH_POSSIBLE_LOCATIONS = "SELECT \"Accession\", \"Geoname_ID\", \"Location\", \"Latitude\", \"Longitude\", \"probability\" FROM \"Possible_Location\" WHERE \"Accession\"=ANY(?)";
+	private static final String PULL_RECORD_SEQUENCE = "SELECT \"Sequence\" FROM \"Sequence\" WHERE \"Accession\"=?";
+	private static final String PULL_BATCH_SEQUENCES = "SELECT \"Accession\", \"Sequence\" FROM \"Sequence\" WHERE \"Accession\"=ANY(?)";
+	private static final String STREAM_FULL_RECORDS = "SELECT " + RECORD_DETAIL_COLUMNS + ", \"Sequence\", " + RECORD_NESTED_COLUMNS + "FROM " + REQUESTED_RECORDS + RECORD_DETAIL_JOINS + RECORD_PUBLICATION_JOIN + "ORDER BY \"Requested\".\"Position\"";
+	private static final String STREAM_METADATA_RECORDS = "SELECT " + RECORD_DETAIL_COLUMNS + ", " + RECORD_NESTED_COLUMNS + "FROM " + REQUESTED_RECORDS + RECORD_DETAIL_JOINS + RECORD_PUBLICATION_JOIN + "ORDER BY \"Requested\".\"Position\"";
 	private static final String PULL_STATE_PREDICTORS = "SELECT \"Key\", \"Value\", \"State\", \"Year\" FROM \"Predictor\" WHERE \"State\"=?";
 	private static final String TEST_QUERY = "SELECT DISTINCT(\"Accession\") FROM \"Sequence_Details\" LIMIT 500";
 
 	private static final Logger log = Logger.getLogger("ZooPhyDAO");
 	
+	private static final String LIGHT_RECORD_KEY = "L:";
+	private static final String FULL_RECORD_KEY = "F:";
+	private static final String LOCATION_KEY = "O:";
+	private static final String POSSIBLE_LOCATIONS_KEY = "P:";
+	private static final String METADATA_RECORD_KEY = "M:";
+	
+	/**
+	 * @param cacheBytes - approximate maximum bytes of cached records, 0 disables the cache
+	 * @param cacheSeconds - seconds a cached record, or a missing accession, stays valid
+	 */
+	public ZooPhyDAO(@Value("${db.cache.bytes:268435456}") long cacheBytes, @Value("${db.cache.seconds:3600}") long cacheSeconds) {
+		recordCache = new GenBankRecordCache(cacheBytes, cacheSeconds * 1000);
+	}
+	
 	/**
 	 * Tests connection to SQL Database
 	 * @throws DaoException
@@ -68,15 +140,21 @@ public class ZooPhyDAO {
 	 */
 	public GenBankRecord retrieveLightRecord(String accession) throws GenBankRecordNotFoundException, DaoException {
 		try {
-			GenBankRecord record = null;
+			final String key = LIGHT_RECORD_KEY + accession;
+			GenBankRecord record = (GenBankRecord) lookupCached(key, accession);
+			if (record != null) {
+				return copyOf(record);
+			}
 			final String[] parameters = {accession};
 			try {
 				record = jdbc.queryForObject(PULL_RECORD_DETAILS, parameters, new GenBankRecordRowMapper());
 			}
 			catch (EmptyResultDataAccessException erdae) {
+				recordCache.putNotFound(key);
 				throw new GenBankRecordNotFoundException(accession);
 			}
-			return record;
+			recordCache.put(key, record, GenBankRecordCache.weigh(record));
+			return copyOf(record);
 		}
 		catch (Exception e) {
 			if (e.getClass() != GenBankRecordNotFoundException.class) {
@@ -97,21 +175,21 @@ public class ZooPhyDAO {
 	 */
 	public GenBankRecord retrieveFullRecord(String accession) throws GenBankRecordNotFoundException, DaoException {
 		try {
-			GenBankRecord record = null;
+			final String key = FULL_RECORD_KEY + accession;
+			GenBankRecord record = (GenBankRecord) lookupCached(key, accession);
+			if (record != null) {
+				return copyOf(record);
+			}
 			final String[] parameters = {accession};
 			try {
-				record = jdbc.queryForObject(PULL_RECORD_DETAILS, parameters, new GenBankRecordRowMapper());
-				record.setGenes(jdbc.query(PULL_RECORD_GENES, parameters, new GeneRowMapper()));
-				record.setPossibleLocations(jdbc.query(PULL_RECORD_POSSIBLE_LOCATIONS, parameters, new PossLocationsRowMapper()));
-				try {
-					record.setPublication(jdbc.queryForObject(PULL_RECORD_PUBLICATION, parameters, new PublicationRowMapper()));
-				}
-				catch (EmptyResultDataAccessException erdae){}
+				record = jdbc.queryForObject(PULL_FULL_RECORD, parameters, new FullGenBankRecordRowMapper());
 			}
 			catch (EmptyResultDataAccessException erdae) {
+				recordCache.putNotFound(key);
 				throw new GenBankRecordNotFoundException(accession);
 			}
-			return record;
+			recordCache.put(key, record, GenBankRecordCache.weigh(record));
+			return copyOf(record);
 		}
 		catch (Exception e) {
 			if (e.getClass() != GenBankRecordNotFoundException.class) {
@@ -123,6 +201,300 @@ public class ZooPhyDAO {
 		}
 	}
 
+	/**
+	 * Retrieve the specified GenBankRecords from the database with all related details.
+	 * Accessions are queried in chunks, with one query per table for each chunk rather than per record.
+	 * @param accessions - unique accessions of records to be returned
+	 * @return - retrieved GenBankRecords keyed by accession in the order requested, and the accessions that were not found
+	 * @throws DaoException
+	 */
+	public GenBankRecordBatch retrieveFullRecords(Collection<String> accessions) throws DaoException {
+		return retrieveRecords(accessions, false);
+	}
+	
+	/**
+	 * Retrieve the specified GenBankRecords from the database with all related details except the raw sequence text.
+	 * Each record's Sequence is a LazySequence, which loads its text on first read. Use loadRawSequences to load the text for many records at once.
+	 * @param accessions - unique accessions of records to be returned
+	 * @return - retrieved GenBankRecords keyed by accession in the order requested, and the accessions that were not found
+	 * @throws DaoException
+	 */
+	public GenBankRecordBatch retrieveMetadataRecords(Collection<String> accessions) throws DaoException {
+		return retrieveRecords(accessions, true);
+	}
+	
+	/**
+	 * Retrieves a batch of GenBankRecords through the record cache
+	 * @param accessions - unique accessions of records to be returned
+	 * @param metadataOnly - whether to leave out the raw sequence text
+	 * @return - retrieved GenBankRecords keyed by accession in the order requested, and the accessions that were not found
+	 * @throws DaoException
+	 */
+	private GenBankRecordBatch retrieveRecords(Collection<String> accessions, boolean metadataOnly) throws DaoException {
+		try {
+			final String keyPrefix = metadataOnly ? METADATA_RECORD_KEY : FULL_RECORD_KEY;
+			GenBankRecordBatch batch = new GenBankRecordBatch();
+			Set<String> uniqueAccessions = new LinkedHashSet<String>(accessions);
+			Map<String, GenBankRecord> found = new HashMap<String, GenBankRecord>(uniqueAccessions.size() * 2);
+			List<String> uncached = new LinkedList<String>();
+			for (String accession : uniqueAccessions) {
+				Object cached = recordCache.get(keyPrefix + accession);
+				if (cached == null) {
+					uncached.add(accession);
+				}
+				else if (cached != GenBankRecordCache.NOT_FOUND) {
+					found.put(accession, copyOf((GenBankRecord) cached));
+				}
+			}
+			int chunkSize = Math.max(1, batchSize);
+			List<String> chunk = new ArrayList<String>(Math.min(chunkSize, uncached.size()));
+			for (String accession : uncached) {
+				chunk.add(accession);
+				if (chunk.size() == chunkSize) {
+					retrieveRecordChunk(chunk, found, metadataOnly);
+					chunk.clear();
+				}
+			}
+			if (!chunk.isEmpty()) {
+				retrieveRecordChunk(chunk, found, metadataOnly);
+			}
+			for (String accession : uncached) {
+				GenBankRecord record = found.get(accession);
+				if (record != null) {
+					recordCache.put(keyPrefix + accession, record, GenBankRecordCache.weigh(record));
+					found.put(accession, copyOf(record));
+				}
+				else {
+					recordCache.putNotFound(keyPrefix + accession);
+				}
+			}
+			for (String accession : uniqueAccessions) {
+				GenBankRecord record = found.get(accession);
+				if (record != null) {
+					batch.getRecords().put(accession, record);
+				}
+				else {
+					batch.getMissingAccessions().add(accession);
+				}
+			}
+			return batch;
+		}
+		catch (Exception e) {
+			throw new DaoException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Retrieves one chunk of GenBankRecords with their genes, possible locations and publication
+	 * @param chunk - accessions to retrieve
+	 * @param found - map of accessions to retrieved records to add to
+	 * @param metadataOnly - whether to leave out the raw sequence text
+	 */
+	private void retrieveRecordChunk(List<String> chunk, final Map<String, GenBankRecord> found, boolean metadataOnly) {
+		final AccessionArraySetter parameters = new AccessionArraySetter(chunk.toArray(new String[chunk.size()]));
+		final GenBankRecordRowMapper recordMapper = metadataOnly ? new GenBankRecordRowMapper(sequenceLoader) : new GenBankRecordRowMapper();
+		jdbc.query(metadataOnly ? PULL_BATCH_METADATA : PULL_BATCH_DETAILS, parameters, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet row) throws SQLException {
+				String accession = row.getString("Accession");
+				if (!found.containsKey(accession)) {
+					found.put(accession, recordMapper.mapRow(row, row.getRow()));
+				}
+			}
+		});
+		final GeneRowMapper geneMapper = new GeneRowMapper();
+		jdbc.query(PULL_BATCH_GENES, parameters, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet row) throws SQLException {
+				GenBankRecord record = found.get(row.getString("Accession"));
+				if (record != null) {
+					record.getGenes().add(geneMapper.mapRow(row, row.getRow()));
+				}
+			}
+		});
+		final PossLocationsRowMapper possibleLocationMapper = new PossLocationsRowMapper();
+		jdbc.query(PULL_BATCH_POSSIBLE_LOCATIONS, parameters, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet row) throws SQLException {
+				GenBankRecord record = found.get(row.getString("Accession"));
+				if (record != null) {
+					record.getPossibleLocations().add(possibleLocationMapper.mapRow(row, row.getRow()));
+				}
+			}
+		});
+		final PublicationRowMapper publicationMapper = new PublicationRowMapper();
+		//rows come ordered by Pubmed_ID, so keeping the first one picks the same publication as the single record and streaming queries
+		jdbc.query(PULL_BATCH_PUBLICATION, parameters, new RowCallbackHandler() {
+			@Override
+			public void processRow(ResultSet row) throws SQLException {
+				GenBankRecord record = found.get(row.getString("Accession"));
+				if (record != null && record.getPublication() == null) {
+					record.setPublication(publicationMapper.mapRow(row, row.getRow()));
+				}
+			}
+		});
+	}
+	
+	/**
+	 * Streams the specified GenBankRecords with all related details from a server side cursor, so that only one fetch of rows is in memory at a time.
+	 * Records bypass the record cache and are handed over in the order requested. Accessions that are not found are skipped.
+	 * The stream holds a pooled connection and its transaction until the handler has taken the last record, so a slow handler, such as one writing to an HTTP client, keeps it that long.
+	 * The stream is rolled back once it runs longer than db.stream.timeout.seconds, and the connection pool should allow for one connection per concurrent download on top of regular requests.
+	 * @param accessions - unique accessions of records to stream
+	 * @param withSequences - whether to include the raw sequence text, otherwise each record gets a LazySequence
+	 * @param handler - handler each record is passed to as soon as it is read
+	 * @return number of records streamed
+	 * @throws DaoException
+	 * @throws IOException if the handler could not write a record
+	 */
+	public int streamRecords(Collection<String> accessions, boolean withSequences, final GenBankRecordHandler handler) throws DaoException, IOException {
+		final Set<String> uniqueAccessions = new LinkedHashSet<String>(accessions);
+		final String query = withSequences ? STREAM_FULL_RECORDS : STREAM_METADATA_RECORDS;
+		final FullGenBankRecordRowMapper recordMapper = withSequences ? new FullGenBankRecordRowMapper() : new FullGenBankRecordRowMapper(sequenceLoader);
+		final int fetchSize = Math.max(1, streamFetchSize);
+		final int timeoutSeconds = Math.max(1, streamTimeoutSeconds);
+		try {
+			return jdbc.execute(new ConnectionCallback<Integer>() {
+				@Override
+				public Integer doInConnection(Connection connection) throws SQLException {
+					//PostgreSQL only keeps a cursor open for a fetch size inside a transaction
+					boolean autoCommit = connection.getAutoCommit();
+					connection.setAutoCommit(false);
+					PreparedStatement statement = null;
+					ResultSet rows = null;
+					try {
+						long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+						statement = connection.prepareStatement(query, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+						statement.setFetchSize(fetchSize);
+						statement.setQueryTimeout(timeoutSeconds);
+						statement.setArray(1, connection.createArrayOf("varchar", uniqueAccessions.toArray(new String[uniqueAccessions.size()])));
+						rows = statement.executeQuery();
+						int streamed = 0;
+						while (rows.next()) {
+							if (System.nanoTime() - deadline > 0) {
+								throw new SQLTimeoutException("Streaming records took longer than "+timeoutSeconds+" seconds");
+							}
+							try {
+								handler.handle(recordMapper.mapRow(rows, streamed));
+							}
+							catch (IOException ioe) {
+								throw new UncheckedIOException(ioe);
+							}
+							streamed++;
+						}
+						connection.commit();
+						return streamed;
+					}
+					catch (SQLException | RuntimeException e) {
+						connection.rollback();
+						throw e;
+					}
+					finally {
+						JdbcUtils.closeResultSet(rows);
+						JdbcUtils.closeStatement(statement);
+						connection.setAutoCommit(autoCommit);
+					}
+				}
+			});
+		}
+		catch (UncheckedIOException uioe) {
+			throw uioe.getCause();
+		}
+		catch (Exception e) {
+			throw new DaoException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Loads the raw sequence text of every record with a LazySequence that is not loaded yet, in chunks of accessions
+	 * @param records - records to load raw sequences for, records with ordinary Sequences are skipped
+	 * @throws DaoException
+	 */
+	public void loadRawSequences(Collection<GenBankRecord> records) throws DaoException {
+		try {
+			final Map<String, List<LazySequence>> unloaded = new LinkedHashMap<String, List<LazySequence>>();
+			for (GenBankRecord record : records) {
+				if (record.getSequence() instanceof LazySequence) {
+					LazySequence sequence = (LazySequence) record.getSequence();
+					if (!sequence.rawSequenceLoaded()) {
+						List<LazySequence> sequences = unloaded.get(sequence.getAccession());
+						if (sequences == null) {
+							sequences = new LinkedList<LazySequence>();
+							unloaded.put(sequence.getAccession(), sequences);
+						}
+						sequences.add(sequence);
+					}
+				}
+			}
+			int chunkSize = Math.max(1, batchSize);
+			List<String> chunk = new ArrayList<String>(Math.min(chunkSize, unloaded.size()));
+			Iterator<String> accessionIter = unloaded.keySet().iterator();
+			while (accessionIter.hasNext()) {
+				chunk.add(accessionIter.next());
+				if (chunk.size() == chunkSize || !accessionIter.hasNext()) {
+					jdbc.query(PULL_BATCH_SEQUENCES, new AccessionArraySetter(chunk.toArray(new String[chunk.size()])), new RowCallbackHandler() {
+						@Override
+						public void processRow(ResultSet row) throws SQLException {
+							List<LazySequence> sequences = unloaded.get(row.getString("Accession"));
+							if (sequences != null) {
+								String rawSequence = row.getString("Sequence");
+								for (LazySequence sequence : sequences) {
+									sequence.setRawSequence(rawSequence);
+								}
+							}
+						}
+					});
+					chunk.clear();
+				}
+			}
+			for (List<LazySequence> sequences : unloaded.values()) {
+				for (LazySequence sequence : sequences) {
+					if (!sequence.rawSequenceLoaded()) {
+						sequence.setRawSequence(null);
+					}
+				}
+			}
+		}
+		catch (Exception e) {
+			throw new DaoException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Retrieve the specified record's raw sequence text from the database
+	 * @param accession - accession of the sequence
+	 * @return raw sequence text, or null if there is none
+	 * @throws DaoException
+	 */
+	private String retrieveRawSequence(String accession) throws DaoException {
+		try {
+			final String[] parameters = {accession};
+			List<String> rawSequences = jdbc.queryForList(PULL_RECORD_SEQUENCE, parameters, String.class);
+			return rawSequences.isEmpty() ? null : rawSequences.get(0);
+		}
+		catch (Exception e) {
+			throw new DaoException(e.getMessage());
+		}
+	}
+	
+	/**
+	 * Binds an array of accessions to the single ANY(?) parameter of a batch query
+	 */
+	private static class AccessionArraySetter implements PreparedStatementSetter {
+		
+		private final String[] accessions;
+		
+		private AccessionArraySetter(String[] accessions) {
+			this.accessions = accessions;
+		}
+		
+		@Override
+		public void setValues(PreparedStatement statement) throws SQLException {
+			statement.setArray(1, statement.getConnection().createArrayOf("varchar", accessions));
+		}
+		
+	}
+
 	/**
 	 * Retrieve the specified record's location from the database
 	 * @param accession
@@ -132,15 +504,21 @@ public class ZooPhyDAO {
 	 */
 	public Location retrieveLocation(String accession) throws GenBankRecordNotFoundException, DaoException {
 		try {
-			Location location = null;
+			final String key = LOCATION_KEY + accession;
+			Location location = (Location) lookupCached(key, accession);
+			if (location != null) {
+				return copyOf(location);
+			}
 			final String[] param = {accession};
 			try {
 				location = jdbc.queryForObject(PULL_RECORD_LOCATION, param, new LocationRowMapper());
 			}
 			catch (EmptyResultDataAccessException erdae) {
+				recordCache.putNotFound(key);
 				throw new GenBankRecordNotFoundException(accession);
 			}
-			return location;
+			recordCache.put(key, location, 0);
+			return copyOf(location);
 		}
 		catch (Exception e) {
 			if (e.getClass() != GenBankRecordNotFoundException.class) {
@@ -155,21 +533,28 @@ public class ZooPhyDAO {
 	/**
 	 * Retrieve the specified record's list of possible locations from the database
 	 * @param accession
-	 * @return Location of the accession
+	 * @return copies of the accession's possible locations, which callers may change without changing the cache
 	 * @throws GenBankRecordNotFoundException
 	 * @throws DaoException
 	 */
+	@SuppressWarnings("unchecked")
 	public List<PossibleLocation> retrievePossibleLocations(String accession) throws GenBankRecordNotFoundException, DaoException {
 		try {
-			List<PossibleLocation> possLocs = null;
+			final String key = POSSIBLE_LOCATIONS_KEY + accession;
+			List<PossibleLocation> possLocs = (List<PossibleLocation>) lookupCached(key, accession);
+			if (possLocs != null) {
+				return copyOf(possLocs);
+			}
 			final String[] param = {accession};
 			try {
 				possLocs = jdbc.query(PULL_RECORD_POSSIBLE_LOCATIONS, param, new PossLocationsRowMapper());
 			}
 			catch (EmptyResultDataAccessException erdae) {
+				recordCache.putNotFound(key);
 				throw new GenBankRecordNotFoundException(accession);
 			}
-			return possLocs;
+			recordCache.put(key, possLocs, GenBankRecordCache.weigh(possLocs));
+			return copyOf(possLocs);
 		}
 		catch (Exception e) {
 			if (e.getClass() != GenBankRecordNotFoundException.class) {
@@ -181,6 +566,149 @@ public class ZooPhyDAO {
 		}
 	}
 
+	/**
+	 * Looks up a cached value, failing fast for accessions cached as missing
+	 * @param key - cache key
+	 * @param accession - accession the value belongs to
+	 * @return the cached value, or null if not cached
+	 * @throws GenBankRecordNotFoundException if the accession is cached as missing
+	 */
+	private Object lookupCached(String key, String accession) throws GenBankRecordNotFoundException {
+		Object cached = recordCache.get(key);
+		if (cached == GenBankRecordCache.NOT_FOUND) {
+			throw new GenBankRecordNotFoundException(accession);
+		}
+		return cached;
+	}
+	
+	/**
+	 * Deep copies a cached record, so that callers changing it or any of its parts, such as the disjoiner updating its location, don't change the cache
+	 * @param record - cached record
+	 * @return copy of the record with its own Sequence, Host, Location, Publication, genes and possible locations
+	 */
+	static GenBankRecord copyOf(GenBankRecord record) {
+		GenBankRecord copy = new GenBankRecord();
+		copy.setAccession(record.getAccession());
+		if (record.getSequence() instanceof LazySequence) {
+			copy.setSequence(((LazySequence) record.getSequence()).copy());
+		}
+		else if (record.getSequence() != null) {
+			copy.setSequence(copyOf(record.getSequence()));
+		}
+		if (record.getHost() != null) {
+			Host host = new Host();
+			host.setAccession(record.getHost().getAccession());
+			host.setName(record.getHost().getName());
+			host.setTaxon(record.getHost().getTaxon());
+			copy.setHost(host);
+		}
+		if (record.getGeonameLocation() != null) {
+			copy.setGeonameLocation(copyOf(record.getGeonameLocation()));
+		}
+		if (record.getPublication() != null) {
+			Publication publication = new Publication();
+			publication.setPubMedID(record.getPublication().getPubMedID());
+			publication.setCentralID(record.getPublication().getCentralID());
+			publication.setAuthors(record.getPublication().getAuthors());
+			publication.setTitle(record.getPublication().getTitle());
+			publication.setJournal(record.getPublication().getJournal());
+			copy.setPublication(publication);
+		}
+		if (record.getGenes() == null) {
+			copy.setGenes(null);
+		}
+		else {
+			for (Gene gene : record.getGenes()) {
+				Gene geneCopy = new Gene();
+				geneCopy.setAccession(gene.getAccession());
+				geneCopy.setName(gene.getName());
+				copy.getGenes().add(geneCopy);
+			}
+		}
+		if (record.getPossibleLocations() == null) {
+			copy.setPossibleLocations(null);
+		}
+		else {
+			copy.setPossibleLocations(copyOf(record.getPossibleLocations()));
+		}
+		return copy;
+	}
+	
+	/**
+	 * @param possibleLocations - cached possible locations
+	 * @return new List with a copy of each possible location
+	 */
+	static List<PossibleLocation> copyOf(List<PossibleLocation> possibleLocations) {
+		List<PossibleLocation> copies = new LinkedList<PossibleLocation>();
+		for (PossibleLocation possibleLocation : possibleLocations) {
+			PossibleLocation copy = new PossibleLocation();
+			copy.setGeonameID(possibleLocation.getGeonameID());
+			copy.setLocation(possibleLocation.getLocation());
+			copy.setLatitude(possibleLocation.getLatitude());
+			copy.setLongitude(possibleLocation.getLongitude());
+			copy.setProbability(possibleLocation.getProbability());
+			copies.add(copy);
+		}
+		return copies;
+	}
+	
+	/**
+	 * @param sequence - cached sequence, with its raw sequence text
+	 * @return copy of the sequence
+	 */
+	private static Sequence copyOf(Sequence sequence) {
+		Sequence copy = new Sequence();
+		copy.setAccession(sequence.getAccession());
+		copy.setDefinition(sequence.getDefinition());
+		copy.setTaxID(sequence.getTaxID());
+		copy.setOrganism(sequence.getOrganism());
+		copy.setIsolate(sequence.getIsolate());
+		copy.setStrain(sequence.getStrain());
+		copy.setUnNormalizedDate(sequence.getUnNormalizedDate());
+		copy.setCollectionDate(sequence.getCollectionDate());
+		copy.setComment(sequence.getComment());
+		copy.setRawSequence(sequence.getRawSequence());
+		copy.setSegmentLength(sequence.getSegmentLength());
+		copy.setPH1N1(sequence.getIsPH1N1());
+		return copy;
+	}
+	
+	/**
+	 * @param location - cached location
+	 * @return copy of the location
+	 */
+	private static Location copyOf(Location location) {
+		Location copy = new Location();
+		copy.setGeonameID(location.getGeonameID());
+		copy.setAccession(location.getAccession());
+		copy.setLocation(location.getLocation());
+		copy.setLatitude(location.getLatitude());
+		copy.setLongitude(location.getLongitude());
+		copy.setGeonameType(location.getGeonameType());
+		copy.setCountry(location.getCountry());
+		copy.setState(location.getState());
+		copy.setHierarchy(location.getHierarchy());
+		copy.setPopulation(location.getPopulation());
+		return copy;
+	}
+	
+	/**
+	 * @return current size and hit ratio of the record cache
+	 */
+	public RecordCacheStatistics getCacheStatistics() {
+		RecordCacheStatistics statistics = new RecordCacheStatistics();
+		statistics.setSize(recordCache.size());
+		statistics.setBytes(recordCache.getWeight());
+		statistics.setHits(recordCache.getHits());
+		statistics.setNotFoundHits(recordCache.getNotFoundHits());
+		statistics.setMisses(recordCache.getMisses());
+		statistics.setEvictions(recordCache.getEvictions());
+		statistics.setExpirations(recordCache.getExpirations());
+		long lookups = statistics.getHits() + statistics.getMisses();
+		statistics.setHitRatio(lookups == 0 ? 0 : (double) statistics.getHits() / lookups);
+		return statistics;
+	}
+
 	/**
 	 * Retrieve the specified US State's GLM predictors from the database
 	 * @param state - US State to retrieve default predictors
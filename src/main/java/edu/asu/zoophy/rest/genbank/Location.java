@@ -100,4 +100,24 @@ public class Location {
 	public void setPopulation(Long population) {
 		this.population = population;
 	}
+
+	/**
+	 * Locations with the same Geoname ID are the same place. Locations without a Geoname ID, such as country placeholders, only equal themselves.
+	 * The Geoname ID must not change while the Location is in a Set or Map.
+	 */
+	@Override
+	public boolean equals(Object other) {
+		if (this == other) {
+			return true;
+		}
+		if (geonameID == null || !(other instanceof Location)) {
+			return false;
+		}
+		return geonameID.equals(((Location) other).getGeonameID());
+	}
+
+	@Override
+	public int hashCode() {
+		return geonameID != null ? geonameID.hashCode() : System.identityHashCode(this);
+	}
 }
@@ -41,85 +41,166 @@ public class DocumentMapper {
 			sequence.setOrganism(luceneDocument.get("Organism"));
 			sequence.setSegmentLength(Integer.parseInt(luceneDocument.get("SegmentLength")));
 			sequence.setStrain(luceneDocument.get("Strain"));
-			try {
-				sequence.setTaxID(Integer.parseInt(SplitString(luceneDocument.get("OrganismID"))));
-			}
-			catch (Exception e) {
-				log.warning("Could not parse OrganismID: "+e.getMessage());
-			}
+			mapTaxID(luceneDocument, sequence);
 			sequence.setPH1N1(Boolean.valueOf(luceneDocument.get("PH1N1")));
 			record.setSequence(sequence);
-			Location location = new Location();
-			location.setAccession(recordAccession);
-			for (IndexableField field : luceneDocument.getFields("GeonameID")) {
-				if (field.stringValue().matches("[0-9]{1,12}+")) {
-					try {
-						location.setGeonameID(Long.parseLong(field.stringValue()));
-						break;
-					}
-					catch (Exception e) {
-						log.warning("Could not parse GeonameID: "+e.getMessage());
-					}
+			record.setGeonameLocation(mapLocation(luceneDocument, recordAccession));
+			mapHost(luceneDocument, record);
+			Publication publication = new Publication();
+			if (luceneDocument.get("PubmedID") != null && !luceneDocument.get("PubmedID").equalsIgnoreCase("n/a")) {
+				publication.setPubMedID(Integer.parseInt(luceneDocument.get("PubmedID")));
+			}
+			mapGenes(luceneDocument, record);
+			return record;
+		}
+		catch (Exception e) {
+			throw new LuceneSearcherException("Failed to map document to record: "+e.getCause() + " : " + e.getMessage());
+		}
+	}
+	
+	/**
+	 * Maps a Lucene Document loaded with only the stored fields of a projection to a trimmed GenBankRecord.
+	 * Parts of the record that were not requested are left null, including its gene and possible location lists, so that they are left out of trimmed responses.
+	 * @param luceneDocument - Lucene Document to map
+	 * @param fields - RecordFields to map
+	 * @throws LuceneSearcherException
+	 */
+	public static GenBankRecord mapRecord(Document luceneDocument, Set<RecordField> fields) throws LuceneSearcherException {
+		GenBankRecord record = new GenBankRecord();
+		try {
+			final String recordAccession = luceneDocument.get("Accession");
+			record.setAccession(recordAccession);
+			if (fields.contains(RecordField.DATE) || fields.contains(RecordField.DEFINITION) || fields.contains(RecordField.ORGANISM) 
+					|| fields.contains(RecordField.STRAIN) || fields.contains(RecordField.SEGMENT_LENGTH) || fields.contains(RecordField.PH1N1)) {
+				Sequence sequence = new Sequence();
+				sequence.setAccession(recordAccession);
+				if (fields.contains(RecordField.DATE)) {
+					sequence.setUnNormalizedDate(luceneDocument.get("Date"));
+					sequence.setCollectionDate(luceneDocument.get("NormalizedDate"));
+				}
+				if (fields.contains(RecordField.DEFINITION)) {
+					sequence.setDefinition(luceneDocument.get("Definition"));
+				}
+				if (fields.contains(RecordField.ORGANISM)) {
+					sequence.setOrganism(luceneDocument.get("Organism"));
+					mapTaxID(luceneDocument, sequence);
 				}
+				if (fields.contains(RecordField.STRAIN)) {
+					sequence.setStrain(luceneDocument.get("Strain"));
+				}
+				if (fields.contains(RecordField.SEGMENT_LENGTH) && luceneDocument.get("SegmentLength") != null) {
+					sequence.setSegmentLength(Integer.parseInt(luceneDocument.get("SegmentLength")));
+				}
+				if (fields.contains(RecordField.PH1N1)) {
+					sequence.setPH1N1(Boolean.valueOf(luceneDocument.get("PH1N1")));
+				}
+				record.setSequence(sequence);
 			}
-			location.setLocation(SimplifyCountry(luceneDocument.get("Location")));
-			location.setGeonameType(luceneDocument.get("LocationType"));
-			if (luceneDocument.get("Latitude") != null) {
-				location.setLatitude(Double.parseDouble(luceneDocument.get("Latitude")));
+			if (fields.contains(RecordField.LOCATION)) {
+				record.setGeonameLocation(mapLocation(luceneDocument, recordAccession));
 			}
-			if (luceneDocument.get("Longitude") != null) {
-				location.setLongitude(Double.parseDouble(luceneDocument.get("Longitude")));
+			else if (fields.contains(RecordField.COUNTRY)) {
+				Location location = new Location();
+				location.setAccession(recordAccession);
+				location.setCountry(luceneDocument.get("Country"));
+				record.setGeonameLocation(location);
 			}
-			location.setCountry(luceneDocument.get("Country"));
-			location.setState(luceneDocument.get("State"));
-			record.setGeonameLocation(location);
-			Host host = new Host();
-			host.setAccession(recordAccession);
-			host.setName(luceneDocument.get("HostNormalizedName"));
-			try {
-				host.setTaxon(Integer.parseInt(SplitString(luceneDocument.get("HostID"))));
+			if (fields.contains(RecordField.HOST)) {
+				mapHost(luceneDocument, record);
 			}
-			catch (Exception e) {
-				log.warning("Could not parse HostID: "+e.getMessage());
+			if (fields.contains(RecordField.GENES)) {
+				mapGenes(luceneDocument, record);
 			}
-			if (host.getTaxon() != null && host.getTaxon() != 1) {
-				record.setHost(host);
+			else {
+				record.setGenes(null);
 			}
-			Publication publication = new Publication();
-			if (luceneDocument.get("PubmedID") != null && !luceneDocument.get("PubmedID").equalsIgnoreCase("n/a")) {
-				publication.setPubMedID(Integer.parseInt(luceneDocument.get("PubmedID")));
+			record.setPossibleLocations(null);
+			return record;
+		}
+		catch (Exception e) {
+			throw new LuceneSearcherException("Failed to map document to record: "+e.getCause() + " : " + e.getMessage());
+		}
+	}
+	
+	private static void mapTaxID(Document luceneDocument, Sequence sequence) {
+		try {
+			sequence.setTaxID(Integer.parseInt(SplitString(luceneDocument.get("OrganismID"))));
+		}
+		catch (Exception e) {
+			log.warning("Could not parse OrganismID: "+e.getMessage());
+		}
+	}
+	
+	private static Location mapLocation(Document luceneDocument, String recordAccession) {
+		Location location = new Location();
+		location.setAccession(recordAccession);
+		for (IndexableField field : luceneDocument.getFields("GeonameID")) {
+			if (field.stringValue().matches("[0-9]{1,12}+")) {
+				try {
+					location.setGeonameID(Long.parseLong(field.stringValue()));
+					break;
+				}
+				catch (Exception e) {
+					log.warning("Could not parse GeonameID: "+e.getMessage());
+				}
 			}
-			if (luceneDocument.getFields("Gene").length > 0) {
-				List<Gene> genes = record.getGenes();
-				Set<String> uniqueGenes = new HashSet<String>(8);
-				boolean isComplete = false;
-				for (IndexableField field : luceneDocument.getFields("Gene")) {
-					String geneName = field.stringValue();
-					if (geneName.equalsIgnoreCase("Complete")) {
-						isComplete = true;
-					}
-					if (!uniqueGenes.contains(geneName)) {
-						uniqueGenes.add(geneName);
-						Gene gene = new Gene();
-						gene.setAccession(recordAccession);
-						gene.setName(field.stringValue());
-						genes.add(gene);
-					}
+		}
+		location.setLocation(SimplifyCountry(luceneDocument.get("Location")));
+		location.setGeonameType(luceneDocument.get("LocationType"));
+		if (luceneDocument.get("Latitude") != null) {
+			location.setLatitude(Double.parseDouble(luceneDocument.get("Latitude")));
+		}
+		if (luceneDocument.get("Longitude") != null) {
+			location.setLongitude(Double.parseDouble(luceneDocument.get("Longitude")));
+		}
+		location.setCountry(luceneDocument.get("Country"));
+		location.setState(luceneDocument.get("State"));
+		return location;
+	}
+	
+	private static void mapHost(Document luceneDocument, GenBankRecord record) {
+		Host host = new Host();
+		host.setAccession(record.getAccession());
+		host.setName(luceneDocument.get("HostNormalizedName"));
+		try {
+			host.setTaxon(Integer.parseInt(SplitString(luceneDocument.get("HostID"))));
+		}
+		catch (Exception e) {
+			log.warning("Could not parse HostID: "+e.getMessage());
+		}
+		if (host.getTaxon() != null && host.getTaxon() != 1) {
+			record.setHost(host);
+		}
+	}
+	
+	private static void mapGenes(Document luceneDocument, GenBankRecord record) {
+		final String recordAccession = record.getAccession();
+		if (luceneDocument.getFields("Gene").length > 0) {
+			List<Gene> genes = record.getGenes();
+			Set<String> uniqueGenes = new HashSet<String>(8);
+			boolean isComplete = false;
+			for (IndexableField field : luceneDocument.getFields("Gene")) {
+				String geneName = field.stringValue();
+				if (geneName.equalsIgnoreCase("Complete")) {
+					isComplete = true;
 				}
-				uniqueGenes.clear();
-				if (isComplete) {
-					genes.clear();
+				if (!uniqueGenes.contains(geneName)) {
+					uniqueGenes.add(geneName);
 					Gene gene = new Gene();
 					gene.setAccession(recordAccession);
-					gene.setName("Complete");
+					gene.setName(field.stringValue());
 					genes.add(gene);
 				}
-				record.setGenes(genes);
 			}
-			return record;
-		}
-		catch (Exception e) {
-			throw new LuceneSearcherException("Failed to map document to record: "+e.getCause() + " : " + e.getMessage());
+			uniqueGenes.clear();
+			if (isComplete) {
+				genes.clear();
+				Gene gene = new Gene();
+				gene.setAccession(recordAccession);
+				gene.setName("Complete");
+				genes.add(gene);
+			}
+			record.setGenes(genes);
 		}
 	}
 	
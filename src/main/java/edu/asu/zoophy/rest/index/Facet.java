@@ -0,0 +1,40 @@
+package edu.asu.zoophy.rest.index;
+
+/**
+ * GenBank Index fields that search results can be counted by
+ * @author devdemetri
+ */
+public enum Facet {
+	HOST("HostNormalizedName"),
+	ORGANISM("Organism"),
+	COUNTRY("Country"),
+	GENE("Gene"),
+	YEAR("NormalizedDate");
+
+	private final String field;
+
+	private Facet(String field) {
+		this.field = field;
+	}
+
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * Converts an Index value of the facet field to the label it is counted under
+	 * @param value - Index value
+	 * @return label to count, or null if the value should not be counted
+	 */
+	public String toLabel(String value) {
+		if (this == YEAR) {
+			if (value.length() >= 4 && Character.isDigit(value.charAt(0)) && Character.isDigit(value.charAt(1)) 
+					&& Character.isDigit(value.charAt(2)) && Character.isDigit(value.charAt(3))) {
+				return value.substring(0, 4);
+			}
+			return null;
+		}
+		return value;
+	}
+
+}
@@ -0,0 +1,228 @@
+package edu.asu.zoophy.rest.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.DocumentStoredFieldVisitor;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.DocIdSetIterator;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.Scorer;
+import org.apache.lucene.util.BitSetIterator;
+import org.apache.lucene.util.FixedBitSet;
+
+/**
+ * Counts the values of several facet fields over the hits of one query.
+ * The query runs once to mark its hits per segment, then each facet is counted from the field's SortedSet or Sorted DocValues.
+ * Facets whose field has no DocValues in a segment are counted from the whole stored values of that segment's hits instead,
+ * reading each hit's stored fields once for all such facets, so the cost follows the number of hits rather than the size of the field.
+ * @author devdemetri
+ */
+class FacetCounter {
+
+	private FacetCounter() {
+
+	}
+
+	/**
+	 * Marks every hit of a query in a per segment bitset, without scoring
+	 */
+	private static class HitCollector implements Collector {
+
+		private final FixedBitSet[] hits;
+		private int totalHits = 0;
+
+		HitCollector(int leafCount) {
+			hits = new FixedBitSet[leafCount];
+		}
+
+		@Override
+		public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+			final FixedBitSet leafHits = new FixedBitSet(context.reader().maxDoc());
+			hits[context.ord] = leafHits;
+			return new LeafCollector() {
+				@Override
+				public void setScorer(Scorer scorer) throws IOException {
+
+				}
+				@Override
+				public void collect(int doc) throws IOException {
+					leafHits.set(doc);
+					totalHits++;
+				}
+			};
+		}
+
+		@Override
+		public boolean needsScores() {
+			return false;
+		}
+
+	}
+
+	/**
+	 * Counts facet values over the hits of a query
+	 * @param indexSearcher - acquired IndexSearcher
+	 * @param query - query to count
+	 * @param facets - Facets to count
+	 * @param limit - maximum values to return per facet
+	 * @return FacetCounts with each facet's top values
+	 * @throws IOException
+	 * @throws LuceneSearcherException if the Index has no field for one of the facets
+	 */
+	static FacetCounts count(IndexSearcher indexSearcher, Query query, List<Facet> facets, int limit) throws IOException, LuceneSearcherException {
+		List<LeafReaderContext> leaves = indexSearcher.getIndexReader().leaves();
+		for (Facet facet : facets) {
+			boolean isIndexed = false;
+			for (LeafReaderContext context : leaves) {
+				if (context.reader().getFieldInfos().fieldInfo(facet.getField()) != null) {
+					isIndexed = true;
+					break;
+				}
+			}
+			if (!isIndexed && !leaves.isEmpty()) {
+				throw new LuceneSearcherException("Index has no "+facet.getField()+" field to count the "+facet.name().toLowerCase()+" facet");
+			}
+		}
+		HitCollector collector = new HitCollector(leaves.size());
+		indexSearcher.search(query, collector);
+		FacetCounts facetCounts = new FacetCounts();
+		facetCounts.setTotalHits(collector.totalHits);
+		Map<Facet, Map<String, Integer>> facetValues = new LinkedHashMap<Facet, Map<String, Integer>>();
+		for (Facet facet : facets) {
+			facetValues.put(facet, new HashMap<String, Integer>());
+		}
+		for (LeafReaderContext context : leaves) {
+			FixedBitSet leafHits = collector.hits[context.ord];
+			if (leafHits == null) {
+				continue;
+			}
+			List<Facet> storedFacets = new ArrayList<Facet>();
+			for (Facet facet : facets) {
+				if (!countDocValues(context.reader(), leafHits, facet, facetValues.get(facet))) {
+					storedFacets.add(facet);
+				}
+			}
+			if (!storedFacets.isEmpty()) {
+				countStoredValues(context.reader(), leafHits, storedFacets, facetValues);
+			}
+		}
+		for (Map.Entry<Facet, Map<String, Integer>> entry : facetValues.entrySet()) {
+			facetCounts.getFacets().put(entry.getKey().name().toLowerCase(), topCounts(entry.getValue(), limit));
+		}
+		return facetCounts;
+	}
+
+	/**
+	 * Counts a facet over a segment's hits from the field's SortedSet or Sorted DocValues
+	 * @return false if the segment has no such DocValues for the field
+	 * @throws IOException
+	 */
+	private static boolean countDocValues(LeafReader leaf, FixedBitSet leafHits, Facet facet, Map<String, Integer> counts) throws IOException {
+		SortedSetDocValues sortedSetValues = leaf.getSortedSetDocValues(facet.getField());
+		if (sortedSetValues != null) {
+			int[] ordCounts = new int[(int) sortedSetValues.getValueCount()];
+			BitSetIterator hitIterator = new BitSetIterator(leafHits, 0);
+			for (int doc = hitIterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = hitIterator.nextDoc()) {
+				sortedSetValues.setDocument(doc);
+				for (long ord = sortedSetValues.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = sortedSetValues.nextOrd()) {
+					ordCounts[(int) ord]++;
+				}
+			}
+			for (int ord = 0; ord < ordCounts.length; ord++) {
+				if (ordCounts[ord] > 0) {
+					add(counts, facet.toLabel(sortedSetValues.lookupOrd(ord).utf8ToString()), ordCounts[ord]);
+				}
+			}
+			return true;
+		}
+		SortedDocValues sortedValues = leaf.getSortedDocValues(facet.getField());
+		if (sortedValues != null) {
+			int[] ordCounts = new int[sortedValues.getValueCount()];
+			BitSetIterator hitIterator = new BitSetIterator(leafHits, 0);
+			for (int doc = hitIterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = hitIterator.nextDoc()) {
+				int ord = sortedValues.getOrd(doc);
+				if (ord >= 0) {
+					ordCounts[ord]++;
+				}
+			}
+			for (int ord = 0; ord < ordCounts.length; ord++) {
+				if (ordCounts[ord] > 0) {
+					add(counts, facet.toLabel(sortedValues.lookupOrd(ord).utf8ToString()), ordCounts[ord]);
+				}
+			}
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Counts facets over a segment's hits from each hit's whole stored values, so analyzed fields are counted by value rather than by token.
+	 * A value stored more than once on a document is counted once for it.
+	 * @throws IOException
+	 */
+	private static void countStoredValues(LeafReader leaf, FixedBitSet leafHits, List<Facet> facets, Map<Facet, Map<String, Integer>> facetValues) throws IOException {
+		Set<String> fields = new HashSet<String>();
+		for (Facet facet : facets) {
+			fields.add(facet.getField());
+		}
+		Set<String> docLabels = new HashSet<String>();
+		BitSetIterator hitIterator = new BitSetIterator(leafHits, 0);
+		for (int doc = hitIterator.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = hitIterator.nextDoc()) {
+			DocumentStoredFieldVisitor visitor = new DocumentStoredFieldVisitor(fields);
+			leaf.document(doc, visitor);
+			Document document = visitor.getDocument();
+			for (Facet facet : facets) {
+				docLabels.clear();
+				for (String value : document.getValues(facet.getField())) {
+					String label = facet.toLabel(value);
+					if (label != null && docLabels.add(label)) {
+						add(facetValues.get(facet), label, 1);
+					}
+				}
+			}
+		}
+	}
+
+	private static void add(Map<String, Integer> counts, String label, int count) {
+		if (label != null) {
+			Integer previous = counts.get(label);
+			counts.put(label, previous == null ? count : previous + count);
+		}
+	}
+
+	private static Map<String, Integer> topCounts(Map<String, Integer> counts, int limit) {
+		List<Map.Entry<String, Integer>> entries = new ArrayList<Map.Entry<String, Integer>>(counts.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<String, Integer>>() {
+			@Override
+			public int compare(Map.Entry<String, Integer> e1, Map.Entry<String, Integer> e2) {
+				int comparison = e2.getValue().compareTo(e1.getValue());
+				return comparison != 0 ? comparison : e1.getKey().compareTo(e2.getKey());
+			}
+		});
+		Map<String, Integer> top = new LinkedHashMap<String, Integer>();
+		for (Map.Entry<String, Integer> entry : entries) {
+			if (top.size() >= limit) {
+				break;
+			}
+			top.put(entry.getKey(), entry.getValue());
+		}
+		return top;
+	}
+
+}
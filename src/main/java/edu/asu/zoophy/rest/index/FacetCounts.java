@@ -0,0 +1,39 @@
+package edu.asu.zoophy.rest.index;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Counts of matching GenBank Records per value of each facet, such as host or country
+ * @author devdemetri
+ */
+public class FacetCounts {
+
+	private int totalHits;
+	private Map<String, Map<String, Integer>> facets;
+
+	public FacetCounts() {
+		totalHits = 0;
+		facets = new LinkedHashMap<String, Map<String, Integer>>();
+	}
+
+	public int getTotalHits() {
+		return totalHits;
+	}
+
+	public void setTotalHits(int totalHits) {
+		this.totalHits = totalHits;
+	}
+
+	/**
+	 * @return facet name mapped to its values and their counts, highest count first
+	 */
+	public Map<String, Map<String, Integer>> getFacets() {
+		return facets;
+	}
+
+	public void setFacets(Map<String, Map<String, Integer>> facets) {
+		this.facets = facets;
+	}
+
+}
@@ -0,0 +1,263 @@
+package edu.asu.zoophy.rest.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.IntroSorter;
+
+/**
+ * Immutable in-memory copy of every Geoname's feature code and ancestor IDs, loaded once from the Geonames Index.
+ * Geoname IDs are kept sorted in a long array, so a lookup is a binary search to a compact int id,
+ * and that id's ancestors are a slice of one shared long array. Lookups and ancestor checks do not allocate.
+ * @author devdemetri
+ */
+public class GeonameAncestry {
+
+	private final long[] geonameIds;
+	private final String[] geonameTypes;
+	private final int[] ancestorStarts;
+	private final int[] ancestorCounts;
+	private final long[] ancestors;
+
+	private GeonameAncestry(long[] geonameIds, String[] geonameTypes, int[] ancestorStarts, int[] ancestorCounts, long[] ancestors) {
+		this.geonameIds = geonameIds;
+		this.geonameTypes = geonameTypes;
+		this.ancestorStarts = ancestorStarts;
+		this.ancestorCounts = ancestorCounts;
+		this.ancestors = ancestors;
+	}
+
+	/**
+	 * Loads the feature code and ancestry of every live document in the Geonames Index
+	 * @param indexSearcher - acquired Geonames IndexSearcher
+	 * @param idField - stored Geoname ID field
+	 * @param typeField - stored Geonames feature code field
+	 * @param ancestorsField - stored comma separated ancestor IDs field
+	 * @return loaded GeonameAncestry
+	 * @throws IOException
+	 */
+	static GeonameAncestry load(IndexSearcher indexSearcher, String idField, String typeField, String ancestorsField) throws IOException {
+		int maxDoc = indexSearcher.getIndexReader().maxDoc();
+		long[] ids = new long[maxDoc];
+		String[] types = new String[maxDoc];
+		Map<String, String> sharedTypes = new HashMap<String, String>();
+		int[] starts = new int[maxDoc];
+		int[] counts = new int[maxDoc];
+		long[] ancestorValues = new long[Math.max(16, maxDoc)];
+		int size = 0;
+		int ancestorSize = 0;
+		Set<String> fields = new HashSet<String>(Arrays.asList(idField, typeField, ancestorsField));
+		for (LeafReaderContext context : indexSearcher.getIndexReader().leaves()) {
+			LeafReader leaf = context.reader();
+			Bits liveDocs = leaf.getLiveDocs();
+			for (int doc = 0; doc < leaf.maxDoc(); doc++) {
+				if (liveDocs != null && !liveDocs.get(doc)) {
+					continue;
+				}
+				Document document = leaf.document(doc, fields);
+				String id = document.get(idField);
+				if (id == null) {
+					continue;
+				}
+				ids[size] = Long.parseLong(id.trim());
+				String type = document.get(typeField);
+				if (type != null) {
+					String sharedType = sharedTypes.get(type);
+					if (sharedType == null) {
+						sharedType = type;
+						sharedTypes.put(type, type);
+					}
+					types[size] = sharedType;
+				}
+				starts[size] = ancestorSize;
+				for (IndexableField field : document.getFields(ancestorsField)) {
+					String value = field.stringValue();
+					int from = 0;
+					while (from < value.length()) {
+						int to = value.indexOf(',', from);
+						if (to == -1) {
+							to = value.length();
+						}
+						String ancestor = value.substring(from, to).trim();
+						if (!ancestor.isEmpty()) {
+							if (ancestorSize == ancestorValues.length) {
+								ancestorValues = Arrays.copyOf(ancestorValues, ancestorValues.length * 2);
+							}
+							ancestorValues[ancestorSize++] = Long.parseLong(ancestor);
+						}
+						from = to + 1;
+					}
+				}
+				counts[size] = ancestorSize - starts[size];
+				size++;
+			}
+		}
+		return build(Arrays.copyOf(ids, size), Arrays.copyOf(types, size), Arrays.copyOf(starts, size), Arrays.copyOf(counts, size), Arrays.copyOf(ancestorValues, ancestorSize));
+	}
+
+	/**
+	 * Sorts parallel id and ancestor slice arrays by Geoname ID
+	 * @param ids - Geoname IDs
+	 * @param types - feature code of each ID, may contain nulls
+	 * @param starts - start of each ID's ancestors in ancestorValues
+	 * @param counts - number of ancestors of each ID
+	 * @param ancestorValues - all ancestor IDs
+	 * @return GeonameAncestry over the sorted arrays
+	 */
+	static GeonameAncestry build(final long[] ids, final String[] types, final int[] starts, final int[] counts, long[] ancestorValues) {
+		new IntroSorter() {
+			private long pivot;
+			@Override
+			protected void swap(int i, int j) {
+				long id = ids[i];
+				ids[i] = ids[j];
+				ids[j] = id;
+				String type = types[i];
+				types[i] = types[j];
+				types[j] = type;
+				int start = starts[i];
+				starts[i] = starts[j];
+				starts[j] = start;
+				int count = counts[i];
+				counts[i] = counts[j];
+				counts[j] = count;
+			}
+			@Override
+			protected int compare(int i, int j) {
+				return Long.compare(ids[i], ids[j]);
+			}
+			@Override
+			protected void setPivot(int i) {
+				pivot = ids[i];
+			}
+			@Override
+			protected int comparePivot(int j) {
+				return Long.compare(pivot, ids[j]);
+			}
+		}.sort(0, ids.length);
+		return new GeonameAncestry(ids, types, starts, counts, ancestorValues);
+	}
+
+	private int indexOf(long geonameId) {
+		return Arrays.binarySearch(geonameIds, geonameId);
+	}
+
+	/**
+	 * @param geonameId - Geoname ID
+	 * @return true if the Geoname is in the Index
+	 */
+	public boolean contains(long geonameId) {
+		return indexOf(geonameId) >= 0;
+	}
+
+	/**
+	 * Checks whether one Geoname is listed among another Geoname's ancestors
+	 * @param ancestorId - suspected ancestor Geoname ID
+	 * @param geonameId - Geoname ID to check
+	 * @return true if ancestorId is an ancestor of geonameId, false otherwise or if geonameId is unknown
+	 */
+	public boolean isAncestor(long ancestorId, long geonameId) {
+		if (ancestorId == geonameId) {
+			return false;
+		}
+		int index = indexOf(geonameId);
+		if (index < 0) {
+			return false;
+		}
+		int end = ancestorStarts[index] + ancestorCounts[index];
+		for (int i = ancestorStarts[index]; i < end; i++) {
+			if (ancestors[i] == ancestorId) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param geonameId - Geoname ID
+	 * @return feature code of the Geoname, such as ADM1, or null if it is unknown
+	 */
+	public String typeOf(long geonameId) {
+		int index = indexOf(geonameId);
+		return index < 0 ? null : geonameTypes[index];
+	}
+
+	/**
+	 * Finds the first of a Geoname's stored ancestors with a given feature code
+	 * @param geonameId - Geoname ID
+	 * @param type - feature code of the wanted ancestor, such as ADM1, compared ignoring case
+	 * @return ancestor Geoname ID, or -1 if the Geoname is unknown or has no ancestor of that type
+	 */
+	public long ancestorOfType(long geonameId, String type) {
+		int index = indexOf(geonameId);
+		if (index < 0 || type == null) {
+			return -1;
+		}
+		int end = ancestorStarts[index] + ancestorCounts[index];
+		for (int i = ancestorStarts[index]; i < end; i++) {
+			int ancestorIndex = indexOf(ancestors[i]);
+			if (ancestorIndex >= 0 && type.equalsIgnoreCase(geonameTypes[ancestorIndex])) {
+				return ancestors[i];
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * @param geonameId - Geoname ID
+	 * @return number of stored ancestor IDs for the Geoname, or -1 if it is unknown
+	 */
+	public int ancestorCount(long geonameId) {
+		int index = indexOf(geonameId);
+		return index < 0 ? -1 : ancestorCounts[index];
+	}
+
+	/**
+	 * @param geonameId - Geoname ID
+	 * @param position - position in the Geoname's ancestor list, from 0 to ancestorCount - 1
+	 * @return ancestor ID at the given position
+	 * @throws IllegalArgumentException if the Geoname is unknown or the position is out of range
+	 */
+	public long ancestorAt(long geonameId, int position) {
+		int index = indexOf(geonameId);
+		if (index < 0 || position < 0 || position >= ancestorCounts[index]) {
+			throw new IllegalArgumentException("No ancestor "+position+" for Geoname ID: "+geonameId);
+		}
+		return ancestors[ancestorStarts[index] + position];
+	}
+
+	/**
+	 * Copies a Geoname's ancestor IDs into a Set, as stored in the Index
+	 * @param geonameId - Geoname ID
+	 * @return ancestor IDs, or an empty Set if the Geoname is unknown
+	 */
+	public Set<Long> getAncestors(long geonameId) {
+		Set<Long> ancestorSet = new HashSet<Long>();
+		int index = indexOf(geonameId);
+		if (index >= 0) {
+			int end = ancestorStarts[index] + ancestorCounts[index];
+			for (int i = ancestorStarts[index]; i < end; i++) {
+				ancestorSet.add(ancestors[i]);
+			}
+		}
+		return ancestorSet;
+	}
+
+	/**
+	 * @return number of Geonames loaded
+	 */
+	public int size() {
+		return geonameIds.length;
+	}
+
+}
@@ -0,0 +1,220 @@
+package edu.asu.zoophy.rest.index;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.BytesRefFSTEnum;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+
+/**
+ * Finite state transducer mapping normalized location names to Geoname IDs, built once from the Geonames Index.
+ * Each Geoname is reachable by its own name, by "name,ancestor" for each of its ancestors, and by "name,ancestor,ancestor,..." with its full ancestor chain.
+ * Keys shared by several Geonames are kept with no Geoname ID, so ambiguous names still go through the population sorted Lucene lookup.
+ * @author devdemetri
+ */
+public class GeonameGazetteer {
+
+	private final static Long AMBIGUOUS = 0L;
+	private final static int MAX_COMPLETIONS = 16;
+
+	private final FST<Long> fst;
+	private final int keyCount;
+
+	private GeonameGazetteer(FST<Long> fst, int keyCount) {
+		this.fst = fst;
+		this.keyCount = keyCount;
+	}
+
+	/**
+	 * Builds the gazetteer from every live document in the Geonames Index
+	 * @param indexSearcher - acquired Geonames IndexSearcher
+	 * @param idField - stored Geoname ID field
+	 * @param nameField - stored name field
+	 * @param ancestorsField - stored comma separated ancestor names field
+	 * @return built GeonameGazetteer
+	 * @throws IOException
+	 */
+	static GeonameGazetteer load(IndexSearcher indexSearcher, String idField, String nameField, String ancestorsField) throws IOException {
+		Map<String, Long> entries = new HashMap<String, Long>();
+		Set<String> fields = new HashSet<String>(Arrays.asList(idField, nameField, ancestorsField));
+		for (LeafReaderContext context : indexSearcher.getIndexReader().leaves()) {
+			LeafReader leaf = context.reader();
+			Bits liveDocs = leaf.getLiveDocs();
+			for (int doc = 0; doc < leaf.maxDoc(); doc++) {
+				if (liveDocs != null && !liveDocs.get(doc)) {
+					continue;
+				}
+				Document document = leaf.document(doc, fields);
+				String id = document.get(idField);
+				String name = document.get(nameField);
+				if (id == null || name == null) {
+					continue;
+				}
+				Long geonameId = Long.parseLong(id.trim());
+				for (String key : keysFor(name, document.get(ancestorsField))) {
+					Long previous = entries.put(key, geonameId);
+					if (previous != null && !previous.equals(geonameId)) {
+						entries.put(key, AMBIGUOUS);
+					}
+				}
+			}
+		}
+		return build(entries);
+	}
+
+	/**
+	 * Lists the keys a Geoname can be found under
+	 * @param name - Geoname name
+	 * @param ancestorNames - comma separated ancestor names, possibly starting with the Geoname itself
+	 * @return normalized keys
+	 */
+	static List<String> keysFor(String name, String ancestorNames) {
+		List<String> keys = new ArrayList<String>();
+		String normalizedName = normalize(name);
+		if (normalizedName.isEmpty()) {
+			return keys;
+		}
+		keys.add(normalizedName);
+		if (ancestorNames != null) {
+			StringBuilder chain = new StringBuilder(normalizedName);
+			boolean isFirst = true;
+			for (String ancestorName : ancestorNames.split(",")) {
+				String normalizedAncestor = normalize(ancestorName);
+				if (normalizedAncestor.isEmpty() || (isFirst && normalizedAncestor.equals(normalizedName))) {
+					isFirst = false;
+					continue;
+				}
+				isFirst = false;
+				keys.add(normalizedName + "," + normalizedAncestor);
+				chain.append(',').append(normalizedAncestor);
+			}
+			if (chain.length() > normalizedName.length()) {
+				keys.add(chain.toString());
+			}
+		}
+		return keys;
+	}
+
+	/**
+	 * Builds the FST from keys and their Geoname IDs
+	 * @param entries - normalized keys mapped to Geoname ID, or to 0 if several Geonames share the key
+	 * @return built GeonameGazetteer
+	 * @throws IOException
+	 */
+	static GeonameGazetteer build(Map<String, Long> entries) throws IOException {
+		List<BytesRef> keys = new ArrayList<BytesRef>(entries.size());
+		for (String key : entries.keySet()) {
+			keys.add(new BytesRef(key));
+		}
+		keys.sort(null);
+		Builder<Long> builder = new Builder<Long>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton());
+		IntsRefBuilder scratch = new IntsRefBuilder();
+		for (BytesRef key : keys) {
+			builder.add(Util.toIntsRef(key, scratch), entries.get(key.utf8ToString()));
+		}
+		return new GeonameGazetteer(builder.finish(), keys.size());
+	}
+
+	/**
+	 * Normalizes a location name the same way keys are built: parentheticals removed, lower case, collapsed whitespace and no spaces around commas
+	 * @param location - location name
+	 * @return normalized location name
+	 */
+	static String normalize(String location) {
+		String formatted = GeonamesDocumentMapper.formatLocationName(location);
+		return GeonameLocationCache.normalize(formatted);
+	}
+
+	/**
+	 * Looks up an exact location name
+	 * @param location - location name, such as "Phoenix, Arizona"
+	 * @return Geoname ID, 0 if several Geonames share the name, or null if the name is not in the gazetteer
+	 * @throws IOException
+	 */
+	public Long get(String location) throws IOException {
+		return Util.get(fst, new BytesRef(normalize(location)));
+	}
+
+	/**
+	 * Lists gazetteer entries starting with a prefix, in key order
+	 * @param prefix - location name prefix
+	 * @param limit - maximum entries to return
+	 * @return matching normalized keys mapped to Geoname IDs, or to 0 for ambiguous keys, in key order
+	 * @throws IOException
+	 */
+	public Map<String, Long> getByPrefix(String prefix, int limit) throws IOException {
+		Map<String, Long> matches = new LinkedHashMap<String, Long>();
+		BytesRef target = new BytesRef(normalize(prefix));
+		BytesRefFSTEnum<Long> fstEnum = new BytesRefFSTEnum<Long>(fst);
+		for (BytesRefFSTEnum.InputOutput<Long> entry = fstEnum.seekCeil(target); entry != null && matches.size() < limit; entry = fstEnum.next()) {
+			if (!startsWith(entry.input, target)) {
+				break;
+			}
+			matches.put(entry.input.utf8ToString(), entry.output);
+		}
+		return matches;
+	}
+
+	/**
+	 * Resolves a location name from an exact key, or from a prefix that completes to exactly one Geoname
+	 * @param location - location name
+	 * @return Geoname ID, or null if the name is missing or ambiguous and needs the Lucene lookup
+	 * @throws IOException
+	 */
+	public Long resolve(String location) throws IOException {
+		Long geonameId = get(location);
+		if (geonameId == null) {
+			Map<String, Long> completions = getByPrefix(location, MAX_COMPLETIONS);
+			if (completions.isEmpty() || completions.size() == MAX_COMPLETIONS) {
+				return null;
+			}
+			Set<Long> geonameIds = new HashSet<Long>(completions.values());
+			geonameId = geonameIds.size() == 1 ? geonameIds.iterator().next() : null;
+		}
+		return AMBIGUOUS.equals(geonameId) ? null : geonameId;
+	}
+
+	private static boolean startsWith(BytesRef value, BytesRef prefix) {
+		if (value.length < prefix.length) {
+			return false;
+		}
+		for (int i = 0; i < prefix.length; i++) {
+			if (value.bytes[value.offset + i] != prefix.bytes[prefix.offset + i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @return number of keys in the gazetteer
+	 */
+	public int size() {
+		return keyCount;
+	}
+
+	/**
+	 * @return approximate heap size of the FST in bytes
+	 */
+	public long ramBytesUsed() {
+		return fst.ramBytesUsed();
+	}
+
+}
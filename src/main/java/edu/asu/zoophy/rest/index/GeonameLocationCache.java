@@ -0,0 +1,130 @@
+package edu.asu.zoophy.rest.index;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import edu.asu.zoophy.rest.genbank.Location;
+
+/**
+ * Bounded, thread-safe LRU of resolved Geoname Locations, keyed by normalized geonameID or location name.
+ * Lookups that found nothing are cached too. Every entry belongs to one Geonames Index commit generation, and the whole cache is dropped once a newer generation is seen.
+ * @author devdemetri
+ */
+public class GeonameLocationCache {
+
+	/**
+	 * Returned by get() for a location that is cached as not found
+	 */
+	final static Location MISSING = new Location();
+
+	private final int maxEntries;
+	private final Map<String, Location> locations;
+	private long generation = -1;
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * @param maxEntries - maximum number of cached lookups, found or not
+	 */
+	public GeonameLocationCache(final int maxEntries) {
+		this.maxEntries = maxEntries;
+		locations = new LinkedHashMap<String, Location>(64, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Location> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Retrieves a cached lookup
+	 * @param completeLocation - geonameID or location name
+	 * @param currentGeneration - commit generation of the searcher in use
+	 * @return copy of the cached Location, MISSING if the location is cached as not found, or null if it is not cached
+	 */
+	public Location get(String completeLocation, long currentGeneration) {
+		Location location;
+		synchronized (locations) {
+			advanceGeneration(currentGeneration);
+			location = currentGeneration == generation ? locations.get(normalize(completeLocation)) : null;
+		}
+		if (location == null) {
+			misses.incrementAndGet();
+			return null;
+		}
+		hits.incrementAndGet();
+		return location == MISSING ? MISSING : copyOf(location);
+	}
+
+	/**
+	 * Caches a lookup result
+	 * @param completeLocation - geonameID or location name
+	 * @param resultGeneration - commit generation the Location was resolved from
+	 * @param location - resolved Location, or null if nothing was found
+	 */
+	public void put(String completeLocation, long resultGeneration, Location location) {
+		if (maxEntries <= 0) {
+			return;
+		}
+		Location cached = location == null ? MISSING : copyOf(location);
+		synchronized (locations) {
+			advanceGeneration(resultGeneration);
+			if (resultGeneration == generation) {
+				locations.put(normalize(completeLocation), cached);
+			}
+		}
+	}
+
+	private void advanceGeneration(long newGeneration) {
+		if (newGeneration > generation) {
+			locations.clear();
+			generation = newGeneration;
+		}
+	}
+
+	/**
+	 * Normalizes a lookup so equivalent spellings share one entry, such as "Phoenix ,  Arizona" and "phoenix, arizona"
+	 * @param completeLocation - geonameID or location name
+	 * @return lower case location with collapsed whitespace and no spaces around commas
+	 */
+	static String normalize(String completeLocation) {
+		return completeLocation.trim().toLowerCase().replaceAll("\\s+", " ").replaceAll(" ?, ?", ",");
+	}
+
+	/**
+	 * Copies a Location, since callers modify the Locations they are given
+	 * @param location - Location to copy
+	 * @return new Location with the same values
+	 */
+	static Location copyOf(Location location) {
+		Location copy = new Location();
+		copy.setGeonameID(location.getGeonameID());
+		copy.setAccession(location.getAccession());
+		copy.setLocation(location.getLocation());
+		copy.setLatitude(location.getLatitude());
+		copy.setLongitude(location.getLongitude());
+		copy.setGeonameType(location.getGeonameType());
+		copy.setCountry(location.getCountry());
+		copy.setState(location.getState());
+		copy.setHierarchy(location.getHierarchy());
+		copy.setPopulation(location.getPopulation());
+		return copy;
+	}
+
+	public int size() {
+		synchronized (locations) {
+			return locations.size();
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+}
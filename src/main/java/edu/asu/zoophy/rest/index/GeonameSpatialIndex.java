@@ -0,0 +1,229 @@
+package edu.asu.zoophy.rest.index;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.IntroSorter;
+
+import edu.asu.zoophy.rest.security.SecurityHelper;
+
+/**
+ * Immutable k-d tree over the points of administrative Geonames, loaded once from the Geonames Index, for reverse geocoding coordinates.
+ * Points are kept as unit vectors, so straight line distance orders them the same as great circle distance, without special cases at the poles or the antimeridian.
+ * The tree is implicit: each range of the parallel arrays is sorted on one axis and its middle entry is the node, so the tree needs no extra objects.
+ * @author devdemetri
+ */
+public class GeonameSpatialIndex {
+
+	private final static Pattern COORDINATES_PATTERN = Pattern.compile("^" + SecurityHelper.FASTA_MET_COORDINATES_REGEX + "$");
+	private final static String[] ADMIN_CODE_PREFIXES = {"ADM", "PCL"};
+	private final static int DIMENSIONS = 3;
+
+	private final long[] geonameIds;
+	private final double[] points;
+
+	private GeonameSpatialIndex(long[] geonameIds, double[] points) {
+		this.geonameIds = geonameIds;
+		this.points = points;
+	}
+
+	/**
+	 * Loads the point of every live administrative division or country document in the Geonames Index
+	 * @param indexSearcher - acquired Geonames IndexSearcher
+	 * @param idField - stored Geoname ID field
+	 * @param codeField - stored Geonames feature code field
+	 * @param latitudeField - stored latitude field
+	 * @param longitudeField - stored longitude field
+	 * @return loaded GeonameSpatialIndex
+	 * @throws IOException
+	 */
+	static GeonameSpatialIndex load(IndexSearcher indexSearcher, String idField, String codeField, String latitudeField, String longitudeField) throws IOException {
+		int maxDoc = indexSearcher.getIndexReader().maxDoc();
+		long[] ids = new long[maxDoc];
+		double[] latitudes = new double[maxDoc];
+		double[] longitudes = new double[maxDoc];
+		int size = 0;
+		Set<String> fields = new HashSet<String>(Arrays.asList(idField, codeField, latitudeField, longitudeField));
+		for (LeafReaderContext context : indexSearcher.getIndexReader().leaves()) {
+			LeafReader leaf = context.reader();
+			Bits liveDocs = leaf.getLiveDocs();
+			for (int doc = 0; doc < leaf.maxDoc(); doc++) {
+				if (liveDocs != null && !liveDocs.get(doc)) {
+					continue;
+				}
+				Document document = leaf.document(doc, fields);
+				String id = document.get(idField);
+				String latitude = document.get(latitudeField);
+				String longitude = document.get(longitudeField);
+				if (id == null || latitude == null || longitude == null || !isAdministrative(document.get(codeField))) {
+					continue;
+				}
+				ids[size] = Long.parseLong(id.trim());
+				latitudes[size] = Double.parseDouble(latitude);
+				longitudes[size] = Double.parseDouble(longitude);
+				size++;
+			}
+		}
+		return build(Arrays.copyOf(ids, size), Arrays.copyOf(latitudes, size), Arrays.copyOf(longitudes, size));
+	}
+
+	/**
+	 * @param code - Geonames feature code, such as ADM2 or PCLI
+	 * @return true if the code is an administrative division or a country
+	 */
+	static boolean isAdministrative(String code) {
+		if (code != null) {
+			for (String prefix : ADMIN_CODE_PREFIXES) {
+				if (code.startsWith(prefix)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Builds the k-d tree over parallel arrays of Geoname IDs and points
+	 * @param ids - Geoname IDs
+	 * @param latitudes - latitude of each ID, in degrees
+	 * @param longitudes - longitude of each ID, in degrees
+	 * @return GeonameSpatialIndex over the points
+	 */
+	static GeonameSpatialIndex build(long[] ids, double[] latitudes, double[] longitudes) {
+		double[] points = new double[ids.length * DIMENSIONS];
+		for (int i = 0; i < ids.length; i++) {
+			toPoint(latitudes[i], longitudes[i], points, i * DIMENSIONS);
+		}
+		buildTree(ids, points, 0, ids.length, 0);
+		return new GeonameSpatialIndex(ids, points);
+	}
+
+	private static void buildTree(final long[] ids, final double[] points, int from, int to, final int axis) {
+		if (to - from < 2) {
+			return;
+		}
+		new IntroSorter() {
+			private double pivot;
+			@Override
+			protected void swap(int i, int j) {
+				long id = ids[i];
+				ids[i] = ids[j];
+				ids[j] = id;
+				for (int d = 0; d < DIMENSIONS; d++) {
+					double value = points[i * DIMENSIONS + d];
+					points[i * DIMENSIONS + d] = points[j * DIMENSIONS + d];
+					points[j * DIMENSIONS + d] = value;
+				}
+			}
+			@Override
+			protected int compare(int i, int j) {
+				return Double.compare(points[i * DIMENSIONS + axis], points[j * DIMENSIONS + axis]);
+			}
+			@Override
+			protected void setPivot(int i) {
+				pivot = points[i * DIMENSIONS + axis];
+			}
+			@Override
+			protected int comparePivot(int j) {
+				return Double.compare(pivot, points[j * DIMENSIONS + axis]);
+			}
+		}.sort(from, to);
+		int middle = (from + to) >>> 1;
+		buildTree(ids, points, from, middle, (axis + 1) % DIMENSIONS);
+		buildTree(ids, points, middle + 1, to, (axis + 1) % DIMENSIONS);
+	}
+
+	private static void toPoint(double latitude, double longitude, double[] point, int offset) {
+		double lat = Math.toRadians(latitude);
+		double lon = Math.toRadians(longitude);
+		point[offset] = Math.cos(lat) * Math.cos(lon);
+		point[offset + 1] = Math.cos(lat) * Math.sin(lon);
+		point[offset + 2] = Math.sin(lat);
+	}
+
+	/**
+	 * Parses "latitude,longitude" coordinates in decimal degrees
+	 * @param coordinates - coordinates, such as "33.45, -112.07"
+	 * @return latitude and longitude, or null if the text is not coordinates or is out of range
+	 */
+	public static double[] parseCoordinates(String coordinates) {
+		if (coordinates == null) {
+			return null;
+		}
+		Matcher matcher = COORDINATES_PATTERN.matcher(coordinates.trim());
+		if (!matcher.matches()) {
+			return null;
+		}
+		String[] values = coordinates.split(",");
+		double latitude = Double.parseDouble(values[0].trim());
+		double longitude = Double.parseDouble(values[1].trim());
+		if (Math.abs(latitude) > 90 || Math.abs(longitude) > 180) {
+			return null;
+		}
+		return new double[] {latitude, longitude};
+	}
+
+	/**
+	 * Finds the administrative Geoname closest to a point
+	 * @param latitude - latitude in degrees
+	 * @param longitude - longitude in degrees
+	 * @return closest Geoname ID, or -1 if the index is empty
+	 */
+	public long nearest(double latitude, double longitude) {
+		if (geonameIds.length == 0) {
+			return -1;
+		}
+		double[] target = new double[DIMENSIONS];
+		toPoint(latitude, longitude, target, 0);
+		double[] best = {Double.MAX_VALUE, -1};
+		nearest(target, 0, geonameIds.length, 0, best);
+		return geonameIds[(int) best[1]];
+	}
+
+	private void nearest(double[] target, int from, int to, int axis, double[] best) {
+		if (from >= to) {
+			return;
+		}
+		int middle = (from + to) >>> 1;
+		double distance = 0;
+		for (int d = 0; d < DIMENSIONS; d++) {
+			double delta = points[middle * DIMENSIONS + d] - target[d];
+			distance += delta * delta;
+		}
+		if (distance < best[0]) {
+			best[0] = distance;
+			best[1] = middle;
+		}
+		double split = target[axis] - points[middle * DIMENSIONS + axis];
+		int nextAxis = (axis + 1) % DIMENSIONS;
+		if (split < 0) {
+			nearest(target, from, middle, nextAxis, best);
+			if (split * split < best[0]) {
+				nearest(target, middle + 1, to, nextAxis, best);
+			}
+		}
+		else {
+			nearest(target, middle + 1, to, nextAxis, best);
+			if (split * split < best[0]) {
+				nearest(target, from, middle, nextAxis, best);
+			}
+		}
+	}
+
+	/**
+	 * @return number of Geonames in the index
+	 */
+	public int size() {
+		return geonameIds.length;
+	}
+
+}
@@ -0,0 +1,66 @@
+package edu.asu.zoophy.rest.index;
+
+import java.io.IOException;
+
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.CollectionTerminatedException;
+import org.apache.lucene.search.Collector;
+import org.apache.lucene.search.LeafCollector;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.Scorer;
+
+/**
+ * Collects the first matching documents in Index order without scoring, and stops visiting segments once it is full.
+ * For constant-score queries this gives the same top hits as a scored search, without touching every match.
+ * @author devdemetri
+ */
+class IndexOrderCollector implements Collector {
+
+	private final int[] docs;
+	private int count = 0;
+
+	/**
+	 * @param numHits - number of documents to collect
+	 */
+	IndexOrderCollector(int numHits) {
+		docs = new int[Math.max(numHits, 0)];
+	}
+
+	@Override
+	public LeafCollector getLeafCollector(LeafReaderContext context) throws IOException {
+		if (count >= docs.length) {
+			throw new CollectionTerminatedException();
+		}
+		final int docBase = context.docBase;
+		return new LeafCollector() {
+			@Override
+			public void setScorer(Scorer scorer) throws IOException {
+				
+			}
+			@Override
+			public void collect(int doc) throws IOException {
+				docs[count++] = docBase + doc;
+				if (count >= docs.length) {
+					throw new CollectionTerminatedException();
+				}
+			}
+		};
+	}
+
+	@Override
+	public boolean needsScores() {
+		return false;
+	}
+
+	/**
+	 * @return collected documents in Index order
+	 */
+	ScoreDoc[] getScoreDocs() {
+		ScoreDoc[] scoreDocs = new ScoreDoc[count];
+		for (int i = 0; i < count; i++) {
+			scoreDocs[i] = new ScoreDoc(docs[i], Float.NaN);
+		}
+		return scoreDocs;
+	}
+
+}
@@ -0,0 +1,240 @@
+package edu.asu.zoophy.rest.index;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Set;
+import java.util.logging.Logger;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.index.BinaryDocValues;
+import org.apache.lucene.index.FieldInfo;
+import org.apache.lucene.index.IndexOptions;
+import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.NumericDocValues;
+import org.apache.lucene.index.SortedDocValues;
+import org.apache.lucene.index.SortedNumericDocValues;
+import org.apache.lucene.index.SortedSetDocValues;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherFactory;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.store.MMapDirectory;
+
+/**
+ * SearcherFactory that warms every new reader before it is handed out.
+ * Warming optionally walks each field's term dictionary and DocValues in segments the previous reader did not have, then replays a recorded list of representative queries,
+ * so the first real searches after a restart or refresh do not pay for cold pages.
+ * @author devdemetri
+ */
+class IndexWarmer extends SearcherFactory {
+
+	private final static Logger log = Logger.getLogger("IndexWarmer");
+	private final static int REPLAY_HITS = 100;
+
+	private final String indexName;
+	private final boolean warmStructures;
+	private final List<String> replayQueries;
+	private final String defaultField;
+	private final Analyzer analyzer;
+
+	/**
+	 * @param indexName - name of the Index, for logging
+	 * @param warmStructures - whether to walk every term dictionary and DocValues field
+	 * @param replayQueries - Lucene query strings to replay against each new reader
+	 * @param defaultField - default field for parsing the replayed queries
+	 * @param analyzer - Analyzer for parsing the replayed queries
+	 */
+	IndexWarmer(String indexName, boolean warmStructures, List<String> replayQueries, String defaultField, Analyzer analyzer) {
+		this.indexName = indexName;
+		this.warmStructures = warmStructures;
+		this.replayQueries = replayQueries;
+		this.defaultField = defaultField;
+		this.analyzer = analyzer;
+	}
+
+	@Override
+	public IndexSearcher newSearcher(IndexReader reader, IndexReader previousReader) throws IOException {
+		IndexSearcher indexSearcher = new IndexSearcher(reader);
+		long start = System.currentTimeMillis();
+		int warmed = 0;
+		if (warmStructures) {
+			warmed = warmNewLeaves(reader, previousReader);
+		}
+		int replayed = replay(indexSearcher);
+		log.info("Warmed "+indexName+" Index reader in "+(System.currentTimeMillis()-start)+" ms, walked "+warmed+" of "+reader.leaves().size()+" segments, replayed "+replayed+" of "+replayQueries.size()+" queries");
+		return indexSearcher;
+	}
+
+	/**
+	 * Walks the term dictionaries and DocValues of the segments that are new since the previous reader, so that a refresh only pays for what changed
+	 * @param reader - new reader
+	 * @param previousReader - reader being replaced, or null for the first reader
+	 * @return number of segments walked
+	 * @throws IOException
+	 */
+	static int warmNewLeaves(IndexReader reader, IndexReader previousReader) throws IOException {
+		Set<Object> previousCores = new HashSet<Object>();
+		if (previousReader != null) {
+			for (LeafReaderContext context : previousReader.leaves()) {
+				previousCores.add(context.reader().getCoreCacheKey());
+			}
+		}
+		int warmed = 0;
+		long checksum = 0;
+		for (LeafReaderContext context : reader.leaves()) {
+			if (!previousCores.contains(context.reader().getCoreCacheKey())) {
+				checksum += warmLeaf(context.reader());
+				warmed++;
+			}
+		}
+		log.fine("Warm-up checksum: "+checksum);
+		return warmed;
+	}
+
+	/**
+	 * Walks the term dictionary and DocValues of every field in a segment
+	 * @param leaf - segment reader
+	 * @return checksum of the values read, so that reading them can't be skipped
+	 * @throws IOException
+	 */
+	private static long warmLeaf(LeafReader leaf) throws IOException {
+		int maxDoc = leaf.maxDoc();
+		long checksum = 0;
+		for (FieldInfo fieldInfo : leaf.getFieldInfos()) {
+			if (fieldInfo.getIndexOptions() != IndexOptions.NONE) {
+				Terms terms = leaf.terms(fieldInfo.name);
+				if (terms != null) {
+					TermsEnum termsEnum = terms.iterator();
+					while (termsEnum.next() != null) {
+						checksum += termsEnum.docFreq();
+					}
+				}
+			}
+			switch (fieldInfo.getDocValuesType()) {
+				case NUMERIC:
+					NumericDocValues numericValues = leaf.getNumericDocValues(fieldInfo.name);
+					for (int doc = 0; doc < maxDoc; doc++) {
+						checksum += numericValues.get(doc);
+					}
+					break;
+				case BINARY:
+					BinaryDocValues binaryValues = leaf.getBinaryDocValues(fieldInfo.name);
+					for (int doc = 0; doc < maxDoc; doc++) {
+						checksum += binaryValues.get(doc).length;
+					}
+					break;
+				case SORTED:
+					SortedDocValues sortedValues = leaf.getSortedDocValues(fieldInfo.name);
+					for (int doc = 0; doc < maxDoc; doc++) {
+						checksum += sortedValues.getOrd(doc);
+					}
+					break;
+				case SORTED_SET:
+					SortedSetDocValues sortedSetValues = leaf.getSortedSetDocValues(fieldInfo.name);
+					for (int doc = 0; doc < maxDoc; doc++) {
+						sortedSetValues.setDocument(doc);
+						for (long ord = sortedSetValues.nextOrd(); ord != SortedSetDocValues.NO_MORE_ORDS; ord = sortedSetValues.nextOrd()) {
+							checksum += ord;
+						}
+					}
+					break;
+				case SORTED_NUMERIC:
+					SortedNumericDocValues sortedNumericValues = leaf.getSortedNumericDocValues(fieldInfo.name);
+					for (int doc = 0; doc < maxDoc; doc++) {
+						sortedNumericValues.setDocument(doc);
+						for (int i = 0; i < sortedNumericValues.count(); i++) {
+							checksum += sortedNumericValues.valueAt(i);
+						}
+					}
+					break;
+				default:
+					break;
+			}
+		}
+		return checksum;
+	}
+
+	/**
+	 * Runs each recorded query and loads its top stored documents
+	 * @param indexSearcher - searcher to warm
+	 * @return number of queries replayed successfully
+	 */
+	private int replay(IndexSearcher indexSearcher) {
+		int replayed = 0;
+		QueryParser queryParser = new QueryParser(defaultField, analyzer);
+		for (String queryString : replayQueries) {
+			try {
+				TopDocs documents = indexSearcher.search(queryParser.parse(queryString), REPLAY_HITS);
+				for (ScoreDoc scoreDoc : documents.scoreDocs) {
+					indexSearcher.doc(scoreDoc.doc);
+				}
+				replayed++;
+			}
+			catch (Exception e) {
+				log.warning("Could not replay warm-up query on "+indexName+" Index: "+queryString+" : "+e.getMessage().split("\n")[0]);
+			}
+		}
+		return replayed;
+	}
+
+	/**
+	 * Opens an Index directory, memory mapped if requested, and asks a memory mapped directory to preload its files into the page cache
+	 * @param index - Index location
+	 * @param mmap - whether to memory map the Index even where Lucene would not choose to by default
+	 * @param preload - whether to preload mapped files
+	 * @return opened Directory
+	 * @throws IOException
+	 */
+	static Directory openDirectory(Path index, boolean mmap, boolean preload) throws IOException {
+		Directory directory = mmap ? new MMapDirectory(index) : FSDirectory.open(index);
+		if (directory instanceof MMapDirectory) {
+			MMapDirectory mappedDirectory = (MMapDirectory) directory;
+			mappedDirectory.setPreload(preload);
+			if (!MMapDirectory.UNMAP_SUPPORTED) {
+				log.warning("Mapped Index files at "+index+" will only be unmapped on garbage collection");
+			}
+		}
+		else if (preload) {
+			log.warning("Index at "+index+" is not memory mapped, cannot preload: "+directory.getClass().getSimpleName());
+		}
+		return directory;
+	}
+
+	/**
+	 * Reads recorded warm-up queries, one Lucene query per line. Blank lines and lines starting with # are skipped.
+	 * @param queryFile - path to the query file, or empty for none
+	 * @return recorded query strings
+	 */
+	static List<String> readQueries(String queryFile) {
+		List<String> queries = new LinkedList<String>();
+		if (queryFile == null || queryFile.trim().isEmpty()) {
+			return queries;
+		}
+		try {
+			for (String line : Files.readAllLines(Paths.get(queryFile.trim()), StandardCharsets.UTF_8)) {
+				String query = line.trim();
+				if (!query.isEmpty() && !query.startsWith("#")) {
+					queries.add(query);
+				}
+			}
+		}
+		catch (IOException ioe) {
+			log.warning("Could not read warm-up queries from "+queryFile+" : "+ioe.getMessage());
+		}
+		return queries;
+	}
+
+}
@@ -0,0 +1,179 @@
+package edu.asu.zoophy.rest.index;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
+import org.apache.lucene.util.BytesRefBuilder;
+import org.apache.lucene.util.IntsRef;
+import org.apache.lucene.util.IntsRefBuilder;
+import org.apache.lucene.util.fst.Builder;
+import org.apache.lucene.util.fst.FST;
+import org.apache.lucene.util.fst.PositiveIntOutputs;
+import org.apache.lucene.util.fst.Util;
+
+/**
+ * Population weighted location typeahead, built once from the Geonames Index.
+ * Every gazetteer key of a Geoname, such as "phoenix,arizona", is one FST path followed by a separator and its Geoname ID, whose output is a cost that falls as population grows.
+ * Completing a prefix walks to the prefix node and runs a top N shortest path search from there, so the most populous completions come out first without visiting every match.
+ * @author devdemetri
+ */
+public class LocationSuggester {
+
+	private final static int SEPARATOR = 0x1F;
+	private final static long MAX_POPULATION = Integer.MAX_VALUE;
+	private final static Comparator<Long> COST_ORDER = new Comparator<Long>() {
+		@Override
+		public int compare(Long cost1, Long cost2) {
+			return cost1.compareTo(cost2);
+		}
+	};
+
+	private final FST<Long> fst;
+	private final int maxKeysPerGeoname;
+
+	private LocationSuggester(FST<Long> fst, int maxKeysPerGeoname) {
+		this.fst = fst;
+		this.maxKeysPerGeoname = maxKeysPerGeoname;
+	}
+
+	/**
+	 * Builds the suggester from every live document in the Geonames Index
+	 * @param indexSearcher - acquired Geonames IndexSearcher
+	 * @param idField - stored Geoname ID field
+	 * @param nameField - stored name field
+	 * @param ancestorsField - stored comma separated ancestor names field
+	 * @param populationField - stored population field
+	 * @return built LocationSuggester
+	 * @throws IOException
+	 */
+	static LocationSuggester load(IndexSearcher indexSearcher, String idField, String nameField, String ancestorsField, String populationField) throws IOException {
+		Map<String, Long> costs = new HashMap<String, Long>();
+		int maxKeys = 1;
+		Set<String> fields = new HashSet<String>(Arrays.asList(idField, nameField, ancestorsField, populationField));
+		for (LeafReaderContext context : indexSearcher.getIndexReader().leaves()) {
+			LeafReader leaf = context.reader();
+			Bits liveDocs = leaf.getLiveDocs();
+			for (int doc = 0; doc < leaf.maxDoc(); doc++) {
+				if (liveDocs != null && !liveDocs.get(doc)) {
+					continue;
+				}
+				Document document = leaf.document(doc, fields);
+				String id = document.get(idField);
+				String name = document.get(nameField);
+				if (id == null || name == null) {
+					continue;
+				}
+				String population = document.get(populationField);
+				Long cost = costOf(population == null ? 0 : Long.parseLong(population.trim()));
+				List<String> keys = GeonameGazetteer.keysFor(name, document.get(ancestorsField));
+				for (String key : keys) {
+					costs.put(key + (char) SEPARATOR + id.trim(), cost);
+				}
+				maxKeys = Math.max(maxKeys, keys.size());
+			}
+		}
+		return build(costs, maxKeys);
+	}
+
+	/**
+	 * Builds the FST from "label SEPARATOR geonameID" keys and their costs
+	 * @param costs - keys mapped to costs
+	 * @param maxKeysPerGeoname - most keys any one Geoname has
+	 * @return built LocationSuggester
+	 * @throws IOException
+	 */
+	static LocationSuggester build(Map<String, Long> costs, int maxKeysPerGeoname) throws IOException {
+		List<BytesRef> keys = new ArrayList<BytesRef>(costs.size());
+		for (String key : costs.keySet()) {
+			keys.add(new BytesRef(key));
+		}
+		keys.sort(null);
+		Builder<Long> builder = new Builder<Long>(FST.INPUT_TYPE.BYTE1, PositiveIntOutputs.getSingleton());
+		IntsRefBuilder scratch = new IntsRefBuilder();
+		for (BytesRef key : keys) {
+			builder.add(Util.toIntsRef(key, scratch), costs.get(key.utf8ToString()));
+		}
+		return new LocationSuggester(builder.finish(), maxKeysPerGeoname);
+	}
+
+	/**
+	 * @param population - Geoname population
+	 * @return FST cost, lowest for the most populous Geonames
+	 */
+	static long costOf(long population) {
+		return MAX_POPULATION - Math.max(0, Math.min(population, MAX_POPULATION));
+	}
+
+	/**
+	 * Finds the most populous Geonames whose label starts with a prefix
+	 * @param prefix - typed location prefix, such as "phoenix, ari"
+	 * @param limit - maximum suggestions
+	 * @return distinct Geoname IDs, most populous first
+	 * @throws IOException
+	 */
+	public List<Long> suggest(String prefix, int limit) throws IOException {
+		final List<Long> geonameIds = new ArrayList<Long>(limit);
+		BytesRef target = new BytesRef(GeonameGazetteer.normalize(prefix));
+		if (target.length == 0 || limit < 1) {
+			return geonameIds;
+		}
+		FST.BytesReader reader = fst.getBytesReader();
+		FST.Arc<Long> arc = fst.getFirstArc(new FST.Arc<Long>());
+		Long prefixCost = fst.outputs.getNoOutput();
+		IntsRefBuilder path = new IntsRefBuilder();
+		for (int i = 0; i < target.length; i++) {
+			int label = target.bytes[target.offset + i] & 0xFF;
+			if (fst.findTargetArc(label, arc, arc, reader) == null) {
+				return geonameIds;
+			}
+			prefixCost = fst.outputs.add(prefixCost, arc.output);
+			path.append(label);
+		}
+		final BytesRefBuilder key = new BytesRefBuilder();
+		Util.TopNSearcher<Long> searcher = new Util.TopNSearcher<Long>(fst, limit, limit * maxKeysPerGeoname, COST_ORDER) {
+			@Override
+			protected boolean acceptResult(IntsRef input, Long output) {
+				Long geonameId = geonameIdOf(Util.toBytesRef(input, key));
+				if (geonameIds.contains(geonameId)) {
+					return false;
+				}
+				geonameIds.add(geonameId);
+				return true;
+			}
+		};
+		searcher.addStartPaths(arc, prefixCost, false, path);
+		searcher.search();
+		return geonameIds;
+	}
+
+	private static long geonameIdOf(BytesRef key) {
+		int end = key.offset + key.length;
+		int start = end;
+		while (start > key.offset && key.bytes[start - 1] != SEPARATOR) {
+			start--;
+		}
+		return Long.parseLong(new String(key.bytes, start, end - start, StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * @return approximate heap size of the FST in bytes
+	 */
+	public long ramBytesUsed() {
+		return fst.ramBytesUsed();
+	}
+
+}
@@ -3,15 +3,26 @@ package edu.asu.zoophy.rest.index;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Level;
 import java.util.logging.Logger;
-import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 import javax.annotation.PostConstruct;
@@ -23,17 +34,24 @@ import org.apache.lucene.analysis.standard.StandardAnalyzer;
 import org.apache.lucene.analysis.util.CharArraySet;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.IndexSearcher;
 import org.apache.lucene.search.Query;
-import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.ReferenceManager;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.Sort;
 import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
@@ -48,22 +66,103 @@ import edu.asu.zoophy.rest.security.SecurityHelper;
 @Repository("LuceneHierarchySearcher")
 public class LuceneHierarchySearcher {
 	private Directory indexDirectory;
+	private SearcherManager searcherManager;
+	private volatile GeonameAncestry ancestry = null;
+	private volatile GeonameGazetteer gazetteer = null;
+	private volatile LocationSuggester suggester = null;
+	private volatile GeonameSpatialIndex spatialIndex = null;
+	private final boolean preloadAncestry;
+	private final boolean buildGazetteer;
+	private final boolean buildSuggester;
+	private final boolean buildSpatialIndex;
+	private final GeonameLocationCache locationCache;
+	private ScheduledExecutorService refresher;
 	private final static Logger log = Logger.getLogger("LuceneHierarchySearcher");
 	private final static String NAME_FIELD = "Name";
 	private final static String COUNTRY_FIELD = "Country";
 	private final static String POP_FIELD = "Population";
+	private final static String CODE_FIELD = "Code";
+	private final static String LAT_FIELD = "Latitude";
+	private final static String LON_FIELD = "Longitude";
 	private final static String GID_FIELD = "GeonameId";
 	private final static String ANCNAMES_FIELD = "AncestorsNames";
 	private final static String ANCIDS_FIELD = "AncestorsIds";
+	private final static Pattern GEOID_PATTERN = Pattern.compile(SecurityHelper.FASTA_MET_GEOID_REGEX);
+	private final static Pattern COORDINATES_PATTERN = Pattern.compile(SecurityHelper.FASTA_MET_COORDINATES_REGEX);
+	private final static Sort POPULATION_SORT = new Sort(new SortField(POP_FIELD, SortField.Type.LONG, true));
+	private final Analyzer nameAnalyzer;
+	private final ThreadLocal<QueryParser> nameParsers;
+	private final ExecutorService lookupPool;
 	List<String> stops = Arrays.asList("a", "and", "are", "but", "by",
 			"for", "if","into", "not", "such","that", "the", "their", 
 			"then", "there", "these","they", "this", "was", "will", "with",
 			"of", "state", "province", "county", "area", "region", "prefecture"); 
 	
-	public LuceneHierarchySearcher(@Value("${lucene.geonames.index.location}") String indexLocation) throws LuceneSearcherException  {	
+	public LuceneHierarchySearcher(@Value("${lucene.geonames.index.location}") String indexLocation, @Value("${lucene.index.mmap:true}") boolean mmap, @Value("${lucene.index.preload:false}") boolean preload, @Value("${lucene.index.warm.structures:true}") boolean warmStructures, @Value("${lucene.geonames.warmup.queries:}") String warmupQueries, @Value("${lucene.geonames.ancestry.preload:true}") boolean preloadAncestry, @Value("${lucene.geonames.gazetteer:true}") boolean buildGazetteer, @Value("${lucene.geonames.suggester:true}") boolean buildSuggester, @Value("${lucene.geonames.spatial:true}") boolean buildSpatialIndex, @Value("${lucene.geonames.lookup.threads:0}") int lookupThreads, @Value("${lucene.geonames.cache.size:20000}") int cacheSize, @Value("${lucene.geonames.refresh.seconds:3600}") long refreshSeconds) throws LuceneSearcherException  {	
+		locationCache = new GeonameLocationCache(cacheSize);
+		this.preloadAncestry = preloadAncestry;
+		this.buildGazetteer = buildGazetteer;
+		this.buildSuggester = buildSuggester;
+		this.buildSpatialIndex = buildSpatialIndex;
+		nameAnalyzer = new StandardAnalyzer(new CharArraySet(stops, true));
+		nameParsers = new ThreadLocal<QueryParser>() {
+			@Override
+			protected QueryParser initialValue() {
+				return new QueryParser(ANCNAMES_FIELD, nameAnalyzer);
+			}
+		};
+		lookupPool = Executors.newFixedThreadPool(lookupThreads > 0 ? lookupThreads : Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+			private final AtomicInteger count = new AtomicInteger(0);
+			@Override
+			public Thread newThread(Runnable runnable) {
+				Thread thread = new Thread(runnable, "GeonameLookup-"+count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
 		try {
 			Path index = Paths.get(indexLocation);
-			indexDirectory = FSDirectory.open(index);
+			indexDirectory = IndexWarmer.openDirectory(index, mmap, preload);
+			searcherManager = new SearcherManager(indexDirectory, new IndexWarmer("Geonames", warmStructures, IndexWarmer.readQueries(warmupQueries), ANCNAMES_FIELD, nameAnalyzer));
+			if (preloadAncestry || buildGazetteer || buildSuggester || buildSpatialIndex) {
+				loadInMemoryLookups();
+				searcherManager.addListener(new ReferenceManager.RefreshListener() {
+					@Override
+					public void beforeRefresh() {
+						
+					}
+					@Override
+					public void afterRefresh(boolean didRefresh) {
+						if (didRefresh) {
+							try {
+								loadInMemoryLookups();
+							}
+							catch (IOException ioe) {
+								log.warning("Could not reload in-memory Geoname lookups, keeping the previous ones: "+ioe.getMessage());
+							}
+						}
+					}
+				});
+			}
+			refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "LuceneHierarchySearcherRefresher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			refresher.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						searcherManager.maybeRefresh();
+					}
+					catch (Exception e) {
+						log.warning("Could not refresh Geonames Index reader: "+e.getMessage());
+					}
+				}
+			}, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
 			log.info("Connected to Index at: "+indexLocation);
 		}
 		catch (IOException ioe) {
@@ -79,15 +178,21 @@ public class LuceneHierarchySearcher {
 	 * @throws LuceneSearcherException
 	 */
 	public Set<Long> findLocationAncestors(String geonameId) throws LuceneSearcherException{
+		if (ancestry != null) {
+			try {
+				return ancestry.getAncestors(Long.parseLong(geonameId.trim()));
+			}
+			catch (NumberFormatException nfe) {
+				log.warning("Non numeric Geoname ID, searching Index for ancestors: "+geonameId);
+			}
+		}
 		Set<Long> ancestors = new HashSet<Long>();
-		IndexReader reader = null;
 		IndexSearcher indexSearcher = null;
 		Query query;
 		QueryParser queryParser = null;
 		TopDocs documents;
 		try {
-			reader = DirectoryReader.open(indexDirectory);
-			indexSearcher = new IndexSearcher(reader);
+			indexSearcher = searcherManager.acquire();
 			queryParser = new QueryParser(GID_FIELD, new KeywordAnalyzer());;
 			query = queryParser.parse("\""+geonameId+"\"");
 			documents = indexSearcher.search(query, 1);
@@ -103,137 +208,456 @@ public class LuceneHierarchySearcher {
 			}else {
 				log.info(" No ancestors for: "+ query);
 			}
-			reader.close();
 			return ancestors;
 			
 		} catch (Exception e) {
 			throw new LuceneSearcherException(e.getMessage());
 		}finally {
-			try {
-				if (reader != null) {
-					reader.close();
-				}
-			}
-			catch (IOException ioe) {
-				log.warning("Could not close IndexReader: "+ioe.getMessage()); 
+			release(indexSearcher);
+		}
+	}
+	
+	/**
+	 * Resolves a Geoname's ancestor with a given feature code, such as the ADM1 containing a city.
+	 * The ancestor is picked from the in-memory ancestry when it is loaded, and is mapped through the shared GeonameLocationCache, so repeated lookups across jobs do not query the Index.
+	 * @param geonameId - Geoname ID
+	 * @param type - feature code of the wanted ancestor, such as ADM1
+	 * @return ancestor Location, or null if the Geoname has no ancestor of that type
+	 * @throws LuceneSearcherException
+	 */
+	public Location findAncestorOfType(long geonameId, String type) throws LuceneSearcherException {
+		GeonameAncestry currentAncestry = ancestry;
+		if (currentAncestry != null && currentAncestry.contains(geonameId)) {
+			long ancestorId = currentAncestry.ancestorOfType(geonameId, type);
+			return ancestorId == -1 ? null : findGeonameLocation(String.valueOf(ancestorId));
+		}
+		Set<String> ancestorIds = new LinkedHashSet<String>();
+		for (Long ancestorId : findLocationAncestors(String.valueOf(geonameId))) {
+			ancestorIds.add(String.valueOf(ancestorId));
+		}
+		Map<String, Location> ancestorLocations = findGeonameLocations(ancestorIds);
+		for (String ancestorId : ancestorIds) {
+			Location location = ancestorLocations.get(ancestorId);
+			if (location != null && type.equalsIgnoreCase(location.getGeonameType())) {
+				return location;
 			}
 		}
+		return null;
 	}
 	
 	/**
-	 * Search possible Locations using geonameID or location name
+	 * Search possible Locations using geonameID, location name or "latitude,longitude" coordinates.
+	 * All geonameIDs are resolved in one pass over the Index terms, location names are searched in parallel against one shared searcher, and coordinates are resolved to the closest administrative Geoname.
+	 * Results, including locations that were not found, are shared with every caller through the GeonameLocationCache.
 	 * @param geonameIds - valid Lucene query string
 	 * @return map containing Location of each entry
 	 * @throws LuceneSearcherException
 	 */
 	public Map<String, Location> findGeonameLocations(Set<String> completeLocations) throws LuceneSearcherException{
-		String location ="",parents ="",queryString="";
 		Map<String, Location> records = new HashMap<String, Location>();
-		
-		IndexReader reader = null;
+		List<String> geonameIds = new ArrayList<String>();
+		List<String> locationNames = new ArrayList<String>();
+		List<String> coordinates = new ArrayList<String>();
 		IndexSearcher indexSearcher = null;
-		Query query;
-		QueryParser queryParser = new QueryParser(ANCNAMES_FIELD, new KeywordAnalyzer());
-		TopDocs documents;
-		SortField field = new SortField(POP_FIELD, SortField.Type.LONG, true);
-		Sort sort = new Sort(field);
-		
 		try {
-			reader = DirectoryReader.open(indexDirectory);
-			indexSearcher = new IndexSearcher(reader);
-			
-			for(String completeLocation: completeLocations) {	
-				Pattern geoIdRegex = Pattern.compile(SecurityHelper.FASTA_MET_GEOID_REGEX);
-				Matcher geoIdMatcher = geoIdRegex.matcher(completeLocation);
-				if(geoIdMatcher.matches()){
-					queryParser = new QueryParser(GID_FIELD, new KeywordAnalyzer());
-					query = queryParser.parse("\""+completeLocation+"\"");
-				} else {
-					CharArraySet stopWordsOverride = new CharArraySet(stops, true);
-					Analyzer analyzer = new StandardAnalyzer(stopWordsOverride);
-					queryParser = new QueryParser(ANCNAMES_FIELD, analyzer);
-					String[] Locations = completeLocation.split(",",2);
-					
-					if(Locations.length>1) {
-						location = Locations[0];
-						parents = Locations[1];
-						parents = parents.replace(",", " ");
-						queryString = ANCNAMES_FIELD+":"+parents+" AND "+NAME_FIELD+":\""+location+"\"";
-					}else {
-						location = completeLocation;
-						queryString = NAME_FIELD+":"+location +" OR "+COUNTRY_FIELD+":"+location;
-					}
-					query = queryParser.parse(queryString);
+			indexSearcher = searcherManager.acquire();
+			long generation = generationOf(indexSearcher);
+			for (String completeLocation : completeLocations) {
+				Location cached = locationCache.get(completeLocation, generation);
+				if (cached == GeonameLocationCache.MISSING) {
+					continue;
 				}
-				documents = indexSearcher.search(query, 1, sort);
-				for (ScoreDoc scoreDoc : documents.scoreDocs) {
-					Document document = indexSearcher.doc(scoreDoc.doc);
-					records.put(completeLocation, GeonamesDocumentMapper.mapRecord(document));
-				}	
+				else if (cached != null) {
+					records.put(completeLocation, cached);
+				}
+				else if (GEOID_PATTERN.matcher(completeLocation).matches()) {
+					geonameIds.add(completeLocation);
+				}
+				else if (COORDINATES_PATTERN.matcher(completeLocation).matches()) {
+					coordinates.add(completeLocation);
+				}
+				else {
+					locationNames.add(completeLocation);
+				}
+			}
+			Map<String, Location> resolved = findLocationsById(indexSearcher, geonameIds);
+			resolved.putAll(findLocationsByName(indexSearcher, locationNames));
+			resolved.putAll(findLocationsByCoordinates(indexSearcher, coordinates));
+			for (String geonameId : geonameIds) {
+				locationCache.put(geonameId, generation, resolved.get(geonameId));
 			}
-			reader.close();
+			for (String locationName : locationNames) {
+				locationCache.put(locationName, generation, resolved.get(locationName));
+			}
+			for (String coordinate : coordinates) {
+				locationCache.put(coordinate, generation, resolved.get(coordinate));
+			}
+			records.putAll(resolved);
+		}
+		catch (LuceneSearcherException lse) {
+			throw lse;
 		}
 		catch (Exception e) {
 			throw new LuceneSearcherException(e.getMessage());
 		}
+		finally {
+			release(indexSearcher);
+		}
 		return records;
 	}
 	
 	/**
-	 * Search possible Location for single geonameID or location name
+	 * Search possible Location for single geonameID, location name or "latitude,longitude" coordinates
 	 * @param geonameIds - valid Lucene query string
 	 * @return map containing Location of each entry
 	 * @throws LuceneSearcherException
 	 */
 	public Location findGeonameLocation(String completeLocation) throws LuceneSearcherException{
-		String location ="",parents ="",queryString="";
-		Location locationObj = null;
-		
-		IndexReader reader = null;
 		IndexSearcher indexSearcher = null;
-		Query query;
-		QueryParser queryParser = new QueryParser(ANCNAMES_FIELD, new KeywordAnalyzer());
-		TopDocs documents;
-		SortField field = new SortField(POP_FIELD, SortField.Type.LONG, true);
-		Sort sort = new Sort(field);
-		
 		try {
-			reader = DirectoryReader.open(indexDirectory);
-			indexSearcher = new IndexSearcher(reader);
-			
-			Pattern geoIdRegex = Pattern.compile(SecurityHelper.FASTA_MET_GEOID_REGEX);
-			Matcher geoIdMatcher = geoIdRegex.matcher(completeLocation);
-			if(geoIdMatcher.matches()){
-				queryParser = new QueryParser(GID_FIELD, new KeywordAnalyzer());
-				query = queryParser.parse("\""+completeLocation+"\"");
-			} else {
-				CharArraySet stopWordsOverride = new CharArraySet(stops, true);
-				Analyzer analyzer = new StandardAnalyzer(stopWordsOverride);
-				queryParser = new QueryParser(ANCNAMES_FIELD, analyzer);
-				String[] Locations = completeLocation.split(",",2);
-				
-				if(Locations.length>1) {
-					location = Locations[0];
-					parents = Locations[1];
-					parents = parents.replace(",", " ");
-					queryString = ANCNAMES_FIELD+":"+parents+" AND "+NAME_FIELD+":\""+location+"\"";
-				} else {
-					location = completeLocation;
-					queryString = NAME_FIELD+":"+location +" OR "+COUNTRY_FIELD+":"+location;
-				}
-				query = queryParser.parse(queryString);
+			indexSearcher = searcherManager.acquire();
+			long generation = generationOf(indexSearcher);
+			Location location = locationCache.get(completeLocation, generation);
+			if (location == GeonameLocationCache.MISSING) {
+				return null;
+			}
+			else if (location != null) {
+				return location;
+			}
+			if (GEOID_PATTERN.matcher(completeLocation).matches()) {
+				location = findLocationsById(indexSearcher, Collections.singletonList(completeLocation)).get(completeLocation);
 			}
-			documents = indexSearcher.search(query, 1, sort);
-			for (ScoreDoc scoreDoc : documents.scoreDocs) {
-				Document document = indexSearcher.doc(scoreDoc.doc);
-				locationObj = GeonamesDocumentMapper.mapRecord(document);
+			else if (COORDINATES_PATTERN.matcher(completeLocation).matches()) {
+				location = findLocationsByCoordinates(indexSearcher, Collections.singletonList(completeLocation)).get(completeLocation);
 			}
-			reader.close();
+			else {
+				location = findLocationByName(indexSearcher, completeLocation);
+			}
+			locationCache.put(completeLocation, generation, location);
+			return location;
+		}
+		catch (LuceneSearcherException lse) {
+			throw lse;
 		}
 		catch (Exception e) {
 			throw new LuceneSearcherException(e.getMessage());
 		}
-		return locationObj;
+		finally {
+			release(indexSearcher);
+		}
+	}
+	
+	/**
+	 * Resolves geonameIDs by seeking each ID term in every segment, keeping the most populous match per ID
+	 * @param indexSearcher - acquired IndexSearcher
+	 * @param geonameIds - geonameIDs to resolve
+	 * @return map of geonameID to Location, without IDs that were not found
+	 * @throws IOException
+	 * @throws LuceneSearcherException
+	 */
+	private Map<String, Location> findLocationsById(IndexSearcher indexSearcher, List<String> geonameIds) throws IOException, LuceneSearcherException {
+		Map<String, Location> locations = new HashMap<String, Location>();
+		if (geonameIds.isEmpty()) {
+			return locations;
+		}
+		for (LeafReaderContext context : indexSearcher.getIndexReader().leaves()) {
+			LeafReader leaf = context.reader();
+			Terms terms = leaf.terms(GID_FIELD);
+			if (terms == null) {
+				continue;
+			}
+			Bits liveDocs = leaf.getLiveDocs();
+			TermsEnum termsEnum = terms.iterator();
+			PostingsEnum postings = null;
+			for (String geonameId : geonameIds) {
+				if (!termsEnum.seekExact(new BytesRef(geonameId))) {
+					continue;
+				}
+				postings = termsEnum.postings(postings, PostingsEnum.NONE);
+				for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+					if (liveDocs == null || liveDocs.get(doc)) {
+						Location location = GeonamesDocumentMapper.mapRecord(leaf.document(doc));
+						Location previous = locations.get(geonameId);
+						if (previous == null || location.getPopulation() > previous.getPopulation()) {
+							locations.put(geonameId, location);
+						}
+					}
+				}
+			}
+		}
+		return locations;
+	}
+	
+	/**
+	 * Resolves location names from the gazetteer, then searches the rest in parallel on the lookup pool
+	 * @param indexSearcher - acquired IndexSearcher, shared by every lookup
+	 * @param locationNames - location names, such as "Phoenix, Arizona"
+	 * @return map of location name to Location, without names that were not found
+	 * @throws Exception
+	 */
+	private Map<String, Location> findLocationsByName(final IndexSearcher indexSearcher, List<String> locationNames) throws Exception {
+		Map<String, Location> locations = findLocationsInGazetteer(indexSearcher, locationNames);
+		if (!locations.isEmpty()) {
+			locationNames = new ArrayList<String>(locationNames);
+			locationNames.removeAll(locations.keySet());
+		}
+		if (locationNames.isEmpty()) {
+			return locations;
+		}
+		if (locationNames.size() == 1) {
+			Location location = queryLocationByName(indexSearcher, locationNames.get(0));
+			if (location != null) {
+				locations.put(locationNames.get(0), location);
+			}
+			return locations;
+		}
+		List<Future<Location>> lookups = new ArrayList<Future<Location>>(locationNames.size());
+		try {
+			for (final String locationName : locationNames) {
+				lookups.add(lookupPool.submit(new Callable<Location>() {
+					@Override
+					public Location call() throws Exception {
+						return queryLocationByName(indexSearcher, locationName);
+					}
+				}));
+			}
+			for (int i = 0; i < lookups.size(); i++) {
+				Location location = lookups.get(i).get();
+				if (location != null) {
+					locations.put(locationNames.get(i), location);
+				}
+			}
+		}
+		catch (ExecutionException ee) {
+			throw ee.getCause() instanceof Exception ? (Exception) ee.getCause() : ee;
+		}
+		finally {
+			for (Future<Location> lookup : lookups) {
+				lookup.cancel(true);
+			}
+		}
+		return locations;
+	}
+	
+	/**
+	 * Resolves the location names the gazetteer knows unambiguously, without running a query
+	 * @param indexSearcher - acquired IndexSearcher
+	 * @param locationNames - location names
+	 * @return map of location name to Location, for the names the gazetteer resolved
+	 * @throws IOException
+	 * @throws LuceneSearcherException
+	 */
+	private Map<String, Location> findLocationsInGazetteer(IndexSearcher indexSearcher, List<String> locationNames) throws IOException, LuceneSearcherException {
+		Map<String, Location> locations = new HashMap<String, Location>();
+		GeonameGazetteer currentGazetteer = gazetteer;
+		if (currentGazetteer == null || locationNames.isEmpty()) {
+			return locations;
+		}
+		Map<String, String> namedIds = new HashMap<String, String>();
+		for (String locationName : locationNames) {
+			Long geonameId = currentGazetteer.resolve(locationName);
+			if (geonameId != null) {
+				namedIds.put(locationName, geonameId.toString());
+			}
+		}
+		Map<String, Location> idLocations = findLocationsById(indexSearcher, new ArrayList<String>(new HashSet<String>(namedIds.values())));
+		for (Map.Entry<String, String> namedId : namedIds.entrySet()) {
+			Location location = idLocations.get(namedId.getValue());
+			if (location != null) {
+				locations.put(namedId.getKey(), GeonameLocationCache.copyOf(location));
+			}
+		}
+		return locations;
+	}
+	
+	/**
+	 * Reverse geocodes "latitude,longitude" coordinates to the closest administrative Geoname in the spatial index
+	 * @param indexSearcher - acquired IndexSearcher
+	 * @param coordinates - coordinates in decimal degrees, such as "33.45,-112.07"
+	 * @return map of coordinates to Location, without coordinates that are out of range or could not be resolved
+	 * @throws IOException
+	 * @throws LuceneSearcherException
+	 */
+	private Map<String, Location> findLocationsByCoordinates(IndexSearcher indexSearcher, List<String> coordinates) throws IOException, LuceneSearcherException {
+		Map<String, Location> locations = new HashMap<String, Location>();
+		GeonameSpatialIndex currentSpatialIndex = spatialIndex;
+		if (coordinates.isEmpty()) {
+			return locations;
+		}
+		if (currentSpatialIndex == null) {
+			log.warning("Spatial index is not enabled, cannot resolve coordinates: "+coordinates);
+			return locations;
+		}
+		Map<String, String> pointIds = new HashMap<String, String>();
+		for (String coordinate : coordinates) {
+			double[] point = GeonameSpatialIndex.parseCoordinates(coordinate);
+			if (point != null) {
+				long geonameId = currentSpatialIndex.nearest(point[0], point[1]);
+				if (geonameId != -1) {
+					pointIds.put(coordinate, String.valueOf(geonameId));
+				}
+			}
+		}
+		Map<String, Location> idLocations = findLocationsById(indexSearcher, new ArrayList<String>(new HashSet<String>(pointIds.values())));
+		for (Map.Entry<String, String> pointId : pointIds.entrySet()) {
+			Location location = idLocations.get(pointId.getValue());
+			if (location != null) {
+				locations.put(pointId.getKey(), GeonameLocationCache.copyOf(location));
+			}
+		}
+		return locations;
+	}
+	
+	/**
+	 * Resolves one location name from the gazetteer, or else to its most populous match in the Index
+	 * @param indexSearcher - acquired IndexSearcher
+	 * @param completeLocation - location name, with any parents after the first comma
+	 * @return matching Location, or null if none was found
+	 * @throws Exception
+	 */
+	private Location findLocationByName(IndexSearcher indexSearcher, String completeLocation) throws Exception {
+		GeonameGazetteer currentGazetteer = gazetteer;
+		if (currentGazetteer != null) {
+			Long geonameId = currentGazetteer.resolve(completeLocation);
+			if (geonameId != null) {
+				Location location = findLocationsById(indexSearcher, Collections.singletonList(geonameId.toString())).get(geonameId.toString());
+				if (location != null) {
+					return location;
+				}
+			}
+		}
+		return queryLocationByName(indexSearcher, completeLocation);
+	}
+	
+	/**
+	 * Searches the Index for one location name's most populous match
+	 * @param indexSearcher - acquired IndexSearcher
+	 * @param completeLocation - location name, with any parents after the first comma
+	 * @return matching Location, or null if none was found
+	 * @throws Exception
+	 */
+	private Location queryLocationByName(IndexSearcher indexSearcher, String completeLocation) throws Exception {
+		String queryString;
+		String[] Locations = completeLocation.split(",",2);
+		if(Locations.length>1) {
+			String location = Locations[0];
+			String parents = Locations[1].replace(",", " ");
+			queryString = ANCNAMES_FIELD+":"+parents+" AND "+NAME_FIELD+":\""+location+"\"";
+		} else {
+			queryString = NAME_FIELD+":"+completeLocation +" OR "+COUNTRY_FIELD+":"+completeLocation;
+		}
+		Query query = nameParsers.get().parse(queryString);
+		TopDocs documents = indexSearcher.search(query, 1, POPULATION_SORT);
+		if (documents.scoreDocs.length == 0) {
+			return null;
+		}
+		return GeonamesDocumentMapper.mapRecord(indexSearcher.doc(documents.scoreDocs[0].doc));
+	}
+	
+	/**
+	 * Loads every Geoname's ancestor IDs and builds the name gazetteer, location suggester and spatial index, as configured, so those lookups no longer query the Index
+	 * @throws IOException
+	 */
+	private void loadInMemoryLookups() throws IOException {
+		IndexSearcher indexSearcher = searcherManager.acquire();
+		try {
+			long start = System.currentTimeMillis();
+			if (preloadAncestry) {
+				ancestry = GeonameAncestry.load(indexSearcher, GID_FIELD, CODE_FIELD, ANCIDS_FIELD);
+				log.info("Loaded ancestry of "+ancestry.size()+" Geonames in "+(System.currentTimeMillis()-start)+" ms");
+			}
+			start = System.currentTimeMillis();
+			if (buildGazetteer) {
+				gazetteer = GeonameGazetteer.load(indexSearcher, GID_FIELD, NAME_FIELD, ANCNAMES_FIELD);
+				log.info("Built gazetteer of "+gazetteer.size()+" location names ("+gazetteer.ramBytesUsed()+" bytes) in "+(System.currentTimeMillis()-start)+" ms");
+			}
+			start = System.currentTimeMillis();
+			if (buildSuggester) {
+				suggester = LocationSuggester.load(indexSearcher, GID_FIELD, NAME_FIELD, ANCNAMES_FIELD, POP_FIELD);
+				log.info("Built location suggester ("+suggester.ramBytesUsed()+" bytes) in "+(System.currentTimeMillis()-start)+" ms");
+			}
+			start = System.currentTimeMillis();
+			if (buildSpatialIndex) {
+				spatialIndex = GeonameSpatialIndex.load(indexSearcher, GID_FIELD, CODE_FIELD, LAT_FIELD, LON_FIELD);
+				log.info("Built spatial index of "+spatialIndex.size()+" administrative Geonames in "+(System.currentTimeMillis()-start)+" ms");
+			}
+		}
+		finally {
+			release(indexSearcher);
+		}
+	}
+	
+	/**
+	 * Suggests the most populous Locations whose name, optionally followed by its ancestors, starts with a prefix
+	 * @param prefix - typed location prefix, such as "phoenix, ari"
+	 * @param limit - maximum suggestions
+	 * @return suggested Locations, most populous first
+	 * @throws LuceneSearcherException
+	 */
+	public List<Location> suggestLocations(String prefix, int limit) throws LuceneSearcherException {
+		LocationSuggester currentSuggester = suggester;
+		if (currentSuggester == null) {
+			throw new LuceneSearcherException("Location suggester is not enabled");
+		}
+		List<Location> suggestions = new ArrayList<Location>(limit);
+		try {
+			Set<String> geonameIds = new LinkedHashSet<String>();
+			for (Long geonameId : currentSuggester.suggest(prefix, limit)) {
+				geonameIds.add(String.valueOf(geonameId));
+			}
+			Map<String, Location> locations = findGeonameLocations(geonameIds);
+			for (String geonameId : geonameIds) {
+				Location location = locations.get(geonameId);
+				if (location != null) {
+					suggestions.add(location);
+				}
+			}
+		}
+		catch (IOException ioe) {
+			throw new LuceneSearcherException("Could not suggest locations for: "+prefix+" : "+ioe.getMessage());
+		}
+		return suggestions;
+	}
+	
+	/**
+	 * @param indexSearcher - acquired IndexSearcher
+	 * @return commit generation of the searcher's reader
+	 * @throws IOException
+	 */
+	private static long generationOf(IndexSearcher indexSearcher) throws IOException {
+		return ((DirectoryReader) indexSearcher.getIndexReader()).getIndexCommit().getGeneration();
+	}
+	
+	/**
+	 * @return in-memory Geoname ancestry, or null if it was not preloaded
+	 */
+	public GeonameAncestry getAncestry() {
+		return ancestry;
+	}
+	
+	/**
+	 * Adds the Geoname location cache's size and hit counts to searcher statistics
+	 * @param statistics - SearcherStatistics to fill in
+	 */
+	public void addLocationCacheStatistics(SearcherStatistics statistics) {
+		statistics.setLocationCacheSize(locationCache.size());
+		statistics.setLocationCacheHits(locationCache.getHits());
+		statistics.setLocationCacheMisses(locationCache.getMisses());
+	}
+	
+	/**
+	 * Returns an acquired IndexSearcher to the SearcherManager
+	 * @param indexSearcher - acquired IndexSearcher, may be null
+	 */
+	private void release(IndexSearcher indexSearcher) {
+		if (indexSearcher != null) {
+			try {
+				searcherManager.release(indexSearcher);
+			}
+			catch (IOException ioe) {
+				log.warning("Could not release IndexSearcher: "+ioe.getMessage());
+			}
+		}
 	}
 	
 	/**
@@ -275,6 +699,9 @@ public class LuceneHierarchySearcher {
 	@PreDestroy
 	private void close() {
 		try {
+			refresher.shutdownNow();
+			lookupPool.shutdownNow();
+			searcherManager.close();
 			indexDirectory.close();
 			log.info("Lucene Index closed");
 		}
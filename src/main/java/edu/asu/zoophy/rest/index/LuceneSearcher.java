@@ -3,37 +3,65 @@ package edu.asu.zoophy.rest.index;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 import javax.annotation.PostConstruct;
 import javax.annotation.PreDestroy;
 
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.analysis.TokenStream;
 import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.analysis.tokenattributes.CharTermAttribute;
 import org.apache.lucene.document.Document;
 import org.apache.lucene.index.DirectoryReader;
-import org.apache.lucene.index.IndexReader;
+import org.apache.lucene.index.FieldInfo;
 import org.apache.lucene.index.IndexableField;
+import org.apache.lucene.index.LeafReader;
+import org.apache.lucene.index.LeafReaderContext;
+import org.apache.lucene.index.PostingsEnum;
+import org.apache.lucene.index.Terms;
+import org.apache.lucene.index.TermsEnum;
 import org.apache.lucene.queryparser.classic.ParseException;
-import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.BoostQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.FieldDoc;
 import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.MultiTermQuery;
 import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ReferenceManager;
 import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherLifetimeManager;
+import org.apache.lucene.search.SearcherManager;
 import org.apache.lucene.search.Sort;
-import org.apache.lucene.search.SortField;
 import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.search.DocIdSetIterator;
 import org.apache.lucene.search.TotalHitCountCollector;
 import org.apache.lucene.store.Directory;
-import org.apache.lucene.store.FSDirectory;
-import org.apache.lucene.util.fst.Util.TopResults;
+import org.apache.lucene.util.Bits;
+import org.apache.lucene.util.BytesRef;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import edu.asu.zoophy.rest.genbank.GenBankRecord;
+import edu.asu.zoophy.rest.security.ParameterException;
 
 /**
  * Responsible for retrieving information from Lucene
@@ -43,14 +71,61 @@ import edu.asu.zoophy.rest.genbank.GenBankRecord;
 public class LuceneSearcher {
 	
 	private Directory indexDirectory;
-	private QueryParser queryParser;
+	private SearcherManager searcherManager;
+	private SearcherLifetimeManager cursorSearchers;
+	private final long cursorSeconds;
+	private ScheduledExecutorService refresher;
+	private Analyzer analyzer;
+	private ParsedQueryCache queryCache;
+	private SearchResultCache resultCache;
+	private final Set<SearchSort> missingDocValues = Collections.newSetFromMap(new ConcurrentHashMap<SearchSort, Boolean>());
+	private final AtomicLong refreshCount = new AtomicLong(0);
+	private volatile long readerVersion;
+	private volatile long commitGeneration;
+	private volatile int numDocs;
+	private volatile long lastRefreshTime;
 	private final static Logger log = Logger.getLogger("LuceneSearcher");
+	private final static String ACCESSION_FIELD = "Accession";
 	
-	public LuceneSearcher(@Value("${lucene.genbank.index.location}") String indexLocation) throws LuceneSearcherException {
+	public LuceneSearcher(@Value("${lucene.genbank.index.location}") String indexLocation, @Value("${lucene.genbank.refresh.seconds:60}") long refreshSeconds, @Value("${lucene.query.cache.size:512}") int queryCacheSize, @Value("${lucene.result.cache.bytes:67108864}") long resultCacheBytes, @Value("${lucene.search.cursor.seconds:300}") long cursorSeconds, @Value("${lucene.index.mmap:true}") boolean mmap, @Value("${lucene.index.preload:false}") boolean preload, @Value("${lucene.index.warm.structures:true}") boolean warmStructures, @Value("${lucene.genbank.warmup.queries:}") String warmupQueries) throws LuceneSearcherException {
 		try {
 			Path index = Paths.get(indexLocation);
-			indexDirectory = FSDirectory.open(index);
-			queryParser = new QueryParser("Accession", new StandardAnalyzer());
+			indexDirectory = IndexWarmer.openDirectory(index, mmap, preload);
+			analyzer = new StandardAnalyzer();
+			searcherManager = new SearcherManager(indexDirectory, new IndexWarmer("GenBank", warmStructures, IndexWarmer.readQueries(warmupQueries), ACCESSION_FIELD, analyzer));
+			cursorSearchers = new SearcherLifetimeManager();
+			this.cursorSeconds = cursorSeconds;
+			searcherManager.addListener(new ReferenceManager.RefreshListener() {
+				@Override
+				public void beforeRefresh() {
+					
+				}
+				@Override
+				public void afterRefresh(boolean didRefresh) {
+					if (didRefresh) {
+						refreshCount.incrementAndGet();
+						updateReaderStatistics();
+						log.info("Refreshed Lucene Index reader to generation: "+commitGeneration+" version: "+readerVersion);
+					}
+				}
+			});
+			updateReaderStatistics();
+			queryCache = new ParsedQueryCache(ACCESSION_FIELD, analyzer, queryCacheSize);
+			resultCache = new SearchResultCache(resultCacheBytes);
+			refresher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+				@Override
+				public Thread newThread(Runnable runnable) {
+					Thread thread = new Thread(runnable, "LuceneSearcherRefresher");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+			refresher.scheduleWithFixedDelay(new Runnable() {
+				@Override
+				public void run() {
+					refresh();
+				}
+			}, refreshSeconds, refreshSeconds, TimeUnit.SECONDS);
 			log.info("Connected to Index at: "+indexLocation);
 		}
 		catch (IOException ioe) {
@@ -88,6 +163,9 @@ public class LuceneSearcher {
 	@PreDestroy
 	private void close() {
 		try {
+			refresher.shutdownNow();
+			cursorSearchers.close();
+			searcherManager.close();
 			indexDirectory.close();
 			log.info("Lucene Index closed");
 		}
@@ -96,6 +174,94 @@ public class LuceneSearcher {
 		}
 	}
 	
+	/**
+	 * Checks the Index for a new commit and swaps in a new reader if one is found
+	 */
+	private void refresh() {
+		try {
+			searcherManager.maybeRefresh();
+			cursorSearchers.prune(new SearcherLifetimeManager.PruneByAge(cursorSeconds));
+		}
+		catch (Exception e) {
+			log.warning("Could not refresh Lucene Index reader: "+e.getMessage());
+		}
+	}
+	
+	/**
+	 * Records the version and commit generation of the current reader
+	 */
+	private void updateReaderStatistics() {
+		IndexSearcher indexSearcher = null;
+		try {
+			indexSearcher = searcherManager.acquire();
+			DirectoryReader reader = (DirectoryReader) indexSearcher.getIndexReader();
+			readerVersion = reader.getVersion();
+			commitGeneration = reader.getIndexCommit().getGeneration();
+			numDocs = reader.numDocs();
+			lastRefreshTime = System.currentTimeMillis();
+		}
+		catch (IOException ioe) {
+			log.warning("Could not read Lucene Index reader statistics: "+ioe.getMessage());
+		}
+		finally {
+			release(indexSearcher);
+		}
+	}
+	
+	/**
+	 * Returns an acquired IndexSearcher to the SearcherManager
+	 * @param indexSearcher - IndexSearcher to release, may be null
+	 */
+	private void release(IndexSearcher indexSearcher) {
+		try {
+			if (indexSearcher != null) {
+				searcherManager.release(indexSearcher);
+			}
+		}
+		catch (IOException ioe) {
+			log.warning("Could not release IndexSearcher: "+ioe.getMessage());
+		}
+	}
+	
+	/**
+	 * Reads the commit generation of the Index an acquired searcher is reading
+	 * @param indexSearcher - acquired IndexSearcher
+	 * @return commit generation of the searcher's reader
+	 * @throws IOException
+	 */
+	private static long generationOf(IndexSearcher indexSearcher) throws IOException {
+		return ((DirectoryReader) indexSearcher.getIndexReader()).getIndexCommit().getGeneration();
+	}
+	
+	/**
+	 * @return commit generation of the Index currently being searched
+	 */
+	public long getCommitGeneration() {
+		return commitGeneration;
+	}
+	
+	/**
+	 * Retrieves reader generation and refresh details for the shared searcher
+	 * @return current SearcherStatistics
+	 */
+	public SearcherStatistics getStatistics() {
+		SearcherStatistics statistics = new SearcherStatistics();
+		statistics.setReaderVersion(readerVersion);
+		statistics.setCommitGeneration(commitGeneration);
+		statistics.setNumDocs(numDocs);
+		statistics.setRefreshCount(refreshCount.get());
+		statistics.setLastRefreshTime(lastRefreshTime);
+		statistics.setQueryCacheSize(queryCache.size());
+		statistics.setQueryCacheHits(queryCache.getHits());
+		statistics.setQueryCacheMisses(queryCache.getMisses());
+		statistics.setResultCacheSize(resultCache.size());
+		statistics.setResultCacheBytes(resultCache.getWeight());
+		statistics.setResultCacheHits(resultCache.getHits());
+		statistics.setResultCacheMisses(resultCache.getMisses());
+		statistics.setResultCacheEvictions(resultCache.getEvictions());
+		return statistics;
+	}
+	
 	/**
 	 * Search Lucene Index for count of matching GenBank Records
 	 * @param querystring - valid Lucene query string
@@ -103,49 +269,328 @@ public class LuceneSearcher {
 	 * @throws LuceneSearcherException 
 	 */
 	public String searchCount(String queryString) throws LuceneSearcherException {
-		IndexReader reader = null;
 		IndexSearcher indexSearcher = null;
 		Query query;
 		
 		try{
-			TotalHitCountCollector collector = new TotalHitCountCollector();
-			reader = DirectoryReader.open(indexDirectory);
-			indexSearcher = new IndexSearcher(reader);
-			query = queryParser.parse(queryString);
-			indexSearcher.search(query, collector);
-			return String.valueOf(collector.getTotalHits());
+			indexSearcher = searcherManager.acquire();
+			long generation = generationOf(indexSearcher);
+			Integer count = resultCache.getCount(queryString, generation);
+			if (count == null) {
+				TotalHitCountCollector collector = new TotalHitCountCollector();
+				query = queryCache.getQuery(queryString);
+				indexSearcher.search(query, collector);
+				count = collector.getTotalHits();
+				resultCache.putCount(queryString, generation, count);
+			}
+			return String.valueOf(count);
 		}catch(Exception e) {
 			throw new LuceneSearcherException(e.getMessage());
-		}	
+		}
+		finally {
+			release(indexSearcher);
+		}
+	}
+
+	/**
+	 * Counts matching GenBank Records per value of each Facet, in a single pass over the query's hits
+	 * @param querystring - valid Lucene query string
+	 * @param facets - Facets to count
+	 * @param limit - maximum values to return per Facet
+	 * @return FacetCounts of the query
+	 * @throws LuceneSearcherException
+	 * @throws InvalidLuceneQueryException
+	 */
+	public FacetCounts searchFacets(String querystring, List<Facet> facets, int limit) throws LuceneSearcherException, InvalidLuceneQueryException {
+		IndexSearcher indexSearcher = null;
+		try {
+			indexSearcher = searcherManager.acquire();
+			Query query = new ConstantScoreQuery(queryCache.getQuery(querystring));
+			return FacetCounter.count(indexSearcher, query, facets, limit);
+		}
+		catch (ParseException pe) {
+			throw new InvalidLuceneQueryException(pe.getMessage());
+		}
+		catch (Exception e) {
+			throw new LuceneSearcherException(e.getMessage());
+		}
+		finally {
+			release(indexSearcher);
+		}
 	}
 
 	/**
 	 * Search Lucene Index for matching GenBank Records
 	 * @param querystring - valid Lucene query string
 	 * @param maxRecords - maximum results 
-	 * @return Top Lucene query results as a List of GenBankRecord objects
+	 * @return Top Lucene query results as a List of GenBankRecord objects, shared with the result cache and read-only
 	 * @throws LuceneSearcherException 
 	 * @throws InvalidLuceneQueryException 
 	 */
 	public List<GenBankRecord> searchIndex(String querystring, int maxRecords) throws LuceneSearcherException, InvalidLuceneQueryException {
+		return searchIndex(querystring, maxRecords, null);
+	}
+	
+	/**
+	 * Search Lucene Index for matching GenBank Records, loading only the stored fields needed for the given projection
+	 * @param querystring - valid Lucene query string
+	 * @param maxRecords - maximum results 
+	 * @param fields - RecordFields to return, or null for full records
+	 * @return Top Lucene query results as a List of GenBankRecord objects, shared with the result cache and read-only
+	 * @throws LuceneSearcherException 
+	 * @throws InvalidLuceneQueryException 
+	 */
+	public List<GenBankRecord> searchIndex(String querystring, int maxRecords, Set<RecordField> fields) throws LuceneSearcherException, InvalidLuceneQueryException {
+		try {
+			return searchIndex(querystring, maxRecords, fields, null, false);
+		}
+		catch (ParameterException pe) {
+			//only thrown for a sort
+			throw new LuceneSearcherException(pe.getMessage());
+		}
+	}
+	
+	/**
+	 * Search Lucene Index for matching GenBank Records.
+	 * Without a sort, queries with scoring clauses return the top records by relevance, while filter-only queries run in constant-score mode,
+	 * collecting the first matching records in Index order and stopping early.
+	 * With a sort the query runs in constant-score mode and Lucene selects the top records from the sort field's DocValues.
+	 * A sort is rejected if the Index has no DocValues on its field.
+	 * @param querystring - valid Lucene query string
+	 * @param maxRecords - maximum results 
+	 * @param fields - RecordFields to return, or null for full records
+	 * @param sort - SearchSort to order results by, or null for Index order
+	 * @param isDescending - sort direction, ignored without a sort
+	 * @return Top Lucene query results as a List of GenBankRecord objects, shared with the result cache and read-only
+	 * @throws LuceneSearcherException 
+	 * @throws InvalidLuceneQueryException 
+	 * @throws ParameterException if the Index can't be sorted by the SearchSort
+	 */
+	public List<GenBankRecord> searchIndex(String querystring, int maxRecords, Set<RecordField> fields, SearchSort sort, boolean isDescending) throws LuceneSearcherException, InvalidLuceneQueryException, ParameterException {
 		List<GenBankRecord> records = new LinkedList<GenBankRecord>();
-		IndexReader reader = null;
 		IndexSearcher indexSearcher = null;
 		Query query;
-		TopDocs documents;
+		ScoreDoc[] documents;
 		
 		try {
-			Sort sort = new Sort(new SortField("NormalizedDate", SortField.Type.STRING, true));
-			reader = DirectoryReader.open(indexDirectory);
-			indexSearcher = new IndexSearcher(reader);
-			query = queryParser.parse(querystring);
+			indexSearcher = searcherManager.acquire();
+			long generation = generationOf(indexSearcher);
+			String variant = (fields != null ? fields.toString() : "") + (sort != null ? sort.name() + (isDescending ? "-" : "+") : "");
+			//cached records are shared with every caller rather than copied, so callers must not modify them
+			List<GenBankRecord> cachedRecords = resultCache.getRecords(querystring, maxRecords, variant, generation);
+			if (cachedRecords != null) {
+				return cachedRecords;
+			}
+			query = queryCache.getQuery(querystring);
+			boolean isFilterOnly = isFilterOnly(query);
+			if (sort != null || isFilterOnly) {
+				query = new ConstantScoreQuery(query);
+			}
 			log.info("query: " + querystring + " : " + querystring);
-			documents = indexSearcher.search(query, maxRecords);
+			if (sort != null) {
+				if (!isSortable(indexSearcher, sort)) {
+					throw new ParameterException("sort "+sort.name().toLowerCase()+", the Index field "+sort.getField()+" has no "+sort.getDocValuesType()+" DocValues to sort on");
+				}
+				documents = indexSearcher.search(query, maxRecords, new Sort(sort.toSortField(isDescending))).scoreDocs;
+			}
+			else if (isFilterOnly) {
+				IndexOrderCollector collector = new IndexOrderCollector(maxRecords);
+				indexSearcher.search(query, collector);
+				documents = collector.getScoreDocs();
+			}
+			else {
+				documents = indexSearcher.search(query, maxRecords).scoreDocs;
+			}
+			if (fields == null) {
+				for (ScoreDoc scoreDoc : documents) {
+					Document document = indexSearcher.doc(scoreDoc.doc);
+					records.add(DocumentMapper.mapRecord(document));
+				}
+			}
+			else {
+				Set<String> indexFields = RecordField.indexFieldsFor(fields);
+				for (ScoreDoc scoreDoc : documents) {
+					Document document = indexSearcher.doc(scoreDoc.doc, indexFields);
+					records.add(DocumentMapper.mapRecord(document, fields));
+				}
+			}
+			resultCache.putRecords(querystring, maxRecords, variant, generation, records);
+			return records;
+		}
+		catch (ParseException pe) {
+			throw new InvalidLuceneQueryException(pe.getMessage());
+		}
+		catch (ParameterException pe) {
+			throw pe;
+		}
+		catch (Exception e) {
+			throw new LuceneSearcherException(e.getMessage());
+		}
+		finally {
+			release(indexSearcher);
+		}
+	}
+	
+	/**
+	 * Checks that every segment either lacks the sort field or indexed it with the DocValues Lucene needs to sort on it.
+	 * Sorting without them would mean reading every hit's stored value on every query, so such sorts are rejected instead.
+	 * @param indexSearcher - acquired IndexSearcher
+	 * @param sort - SearchSort to check
+	 * @return true if Lucene can sort on the field
+	 */
+	private boolean isSortable(IndexSearcher indexSearcher, SearchSort sort) {
+		for (LeafReaderContext context : indexSearcher.getIndexReader().leaves()) {
+			FieldInfo fieldInfo = context.reader().getFieldInfos().fieldInfo(sort.getField());
+			if (fieldInfo != null && fieldInfo.getDocValuesType() != sort.getDocValuesType()) {
+				if (missingDocValues.add(sort)) {
+					log.warning("Index field "+sort.getField()+" has no "+sort.getDocValuesType()+" DocValues, rejecting searches sorted by "+sort+" until it is reindexed with them.");
+				}
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Checks whether a query only filters, so that every hit would get the same score and there is no relevance order to preserve
+	 * @param query - parsed query
+	 * @return true if the query has no scoring clauses
+	 */
+	static boolean isFilterOnly(Query query) {
+		if (query instanceof ConstantScoreQuery || query instanceof MatchAllDocsQuery) {
+			return true;
+		}
+		if (query instanceof BoostQuery) {
+			return isFilterOnly(((BoostQuery) query).getQuery());
+		}
+		if (query instanceof MultiTermQuery) {
+			MultiTermQuery.RewriteMethod rewriteMethod = ((MultiTermQuery) query).getRewriteMethod();
+			return rewriteMethod == MultiTermQuery.CONSTANT_SCORE_REWRITE || rewriteMethod == MultiTermQuery.CONSTANT_SCORE_BOOLEAN_REWRITE;
+		}
+		if (query instanceof BooleanQuery) {
+			boolean isFiltered = false;
+			for (BooleanClause clause : ((BooleanQuery) query).clauses()) {
+				switch (clause.getOccur()) {
+					case FILTER:
+						isFiltered = true;
+						break;
+					case MUST:
+						if (!isFilterOnly(clause.getQuery())) {
+							return false;
+						}
+						isFiltered = true;
+						break;
+					case MUST_NOT:
+						break;
+					default:
+						return false;
+				}
+			}
+			return isFiltered;
+		}
+		return false;
+	}
+
+	/**
+	 * Search Lucene Index for matching GenBank Records and hand each one off as soon as it is mapped, without collecting them
+	 * @param querystring - valid Lucene query string
+	 * @param maxRecords - maximum results
+	 * @param handler - SearchResultHandler to receive each record by relevance, or in Index order for filter-only queries
+	 * @return number of records handled
+	 * @throws LuceneSearcherException
+	 * @throws InvalidLuceneQueryException
+	 */
+	public int streamIndex(String querystring, int maxRecords, SearchResultHandler handler) throws LuceneSearcherException, InvalidLuceneQueryException {
+		IndexSearcher indexSearcher = null;
+		Query query;
+		int handled = 0;
+		try {
+			indexSearcher = searcherManager.acquire();
+			query = queryCache.getQuery(querystring);
+			ScoreDoc[] documents;
+			if (isFilterOnly(query)) {
+				IndexOrderCollector collector = new IndexOrderCollector(maxRecords);
+				indexSearcher.search(new ConstantScoreQuery(query), collector);
+				documents = collector.getScoreDocs();
+			}
+			else {
+				documents = indexSearcher.search(query, maxRecords).scoreDocs;
+			}
+			for (ScoreDoc scoreDoc : documents) {
+				Document document = indexSearcher.doc(scoreDoc.doc);
+				handler.handle(DocumentMapper.mapRecord(document));
+				handled++;
+			}
+			return handled;
+		}
+		catch (ParseException pe) {
+			throw new InvalidLuceneQueryException(pe.getMessage());
+		}
+		catch (Exception e) {
+			throw new LuceneSearcherException("Streaming stopped after "+handled+" records: "+e.getMessage());
+		}
+		finally {
+			release(indexSearcher);
+		}
+	}
+	
+	/**
+	 * Search Lucene Index for one page of matching GenBank Records in a stable order.
+	 * The first page records the current searcher so that later pages walk the same Index snapshot.
+	 * @param querystring - valid Lucene query string
+	 * @param pageSize - maximum records in the page
+	 * @param cursor - cursor from the previous page, or null for the first page
+	 * @return SearchPage of records with the cursor for the next page
+	 * @throws LuceneSearcherException
+	 * @throws InvalidLuceneQueryException if the query or cursor is invalid, or the cursor has expired
+	 * @throws ParameterException if the cursor was produced by a different query
+	 */
+	public SearchPage searchPage(String querystring, int pageSize, String cursor) throws LuceneSearcherException, InvalidLuceneQueryException, ParameterException {
+		SearchPage page = new SearchPage();
+		IndexSearcher indexSearcher = null;
+		FieldDoc after = null;
+		long searcherVersion;
+		try {
+			if (cursor == null) {
+				IndexSearcher current = searcherManager.acquire();
+				try {
+					searcherVersion = cursorSearchers.record(current);
+				}
+				finally {
+					release(current);
+				}
+			}
+			else {
+				SearchCursor previous = SearchCursor.decode(cursor);
+				if (!previous.isForQuery(querystring)) {
+					log.warning("Search cursor does not belong to query: "+querystring);
+					throw new ParameterException("cursor");
+				}
+				searcherVersion = previous.getSearcherVersion();
+				after = new FieldDoc(previous.getLastDoc(), Float.NaN, new Object[] {previous.getLastDoc()});
+			}
+			indexSearcher = cursorSearchers.acquire(searcherVersion);
+			if (indexSearcher == null) {
+				throw new InvalidLuceneQueryException("Search cursor has expired: "+cursor);
+			}
+			if (after != null && after.doc >= indexSearcher.getIndexReader().maxDoc()) {
+				throw new InvalidLuceneQueryException("Invalid search cursor: "+cursor);
+			}
+			Query query = queryCache.getQuery(querystring);
+			TopDocs documents = indexSearcher.searchAfter(after, query, pageSize, Sort.INDEXORDER);
 			for (ScoreDoc scoreDoc : documents.scoreDocs) {
 				Document document = indexSearcher.doc(scoreDoc.doc);
-				records.add(DocumentMapper.mapRecord(document));
+				page.getRecords().add(DocumentMapper.mapRecord(document));
 			}
-			return records;
+			page.setTotalHits(documents.totalHits);
+			if (documents.scoreDocs.length == pageSize && pageSize > 0) {
+				int lastDoc = documents.scoreDocs[documents.scoreDocs.length-1].doc;
+				page.setNextCursor(new SearchCursor(searcherVersion, lastDoc, SearchCursor.hashQuery(querystring)).encode());
+			}
+			return page;
+		}
+		catch (InvalidLuceneQueryException ilqe) {
+			throw ilqe;
 		}
 		catch (ParseException pe) {
 			throw new InvalidLuceneQueryException(pe.getMessage());
@@ -155,16 +600,124 @@ public class LuceneSearcher {
 		}
 		finally {
 			try {
-				if (reader != null) {
-					reader.close();
+				if (indexSearcher != null) {
+					cursorSearchers.release(indexSearcher);
 				}
 			}
 			catch (IOException ioe) {
-				log.warning("Could not close IndexReader: "+ioe.getMessage()); 
+				log.warning("Could not release IndexSearcher: "+ioe.getMessage());
 			}
 		}
 	}
 
+	/**
+	 * Retrieves GenBank Records for a list of Accessions by seeking each Accession term directly in the postings of one searcher, without query parsing or scoring
+	 * @param accessions - Accessions to retrieve
+	 * @return GenBankRecords found in the Index, in the order of the given Accessions
+	 * @throws LuceneSearcherException
+	 */
+	public List<GenBankRecord> searchAccessions(List<String> accessions) throws LuceneSearcherException {
+		List<GenBankRecord> records = new LinkedList<GenBankRecord>();
+		IndexSearcher indexSearcher = null;
+		try {
+			indexSearcher = searcherManager.acquire();
+			Map<String, String> accessionTerms = new HashMap<String, String>(accessions.size());
+			Set<String> termSet = new HashSet<String>(accessions.size());
+			for (String accession : accessions) {
+				String term = analyzeAccession(accession);
+				if (term != null) {
+					accessionTerms.put(accession, term);
+					termSet.add(term);
+				}
+			}
+			String[] sortedTerms = termSet.toArray(new String[termSet.size()]);
+			Arrays.sort(sortedTerms);
+			Map<Integer, String> docTerms = new HashMap<Integer, String>(sortedTerms.length);
+			Set<String> resolvedTerms = new HashSet<String>(sortedTerms.length);
+			PostingsEnum postings = null;
+			for (LeafReaderContext context : indexSearcher.getIndexReader().leaves()) {
+				if (resolvedTerms.size() == sortedTerms.length) {
+					break;
+				}
+				LeafReader leaf = context.reader();
+				Terms terms = leaf.terms(ACCESSION_FIELD);
+				if (terms == null) {
+					continue;
+				}
+				Bits liveDocs = leaf.getLiveDocs();
+				TermsEnum termsEnum = terms.iterator();
+				for (String term : sortedTerms) {
+					if (!resolvedTerms.contains(term) && termsEnum.seekExact(new BytesRef(term))) {
+						postings = termsEnum.postings(postings, PostingsEnum.NONE);
+						for (int doc = postings.nextDoc(); doc != DocIdSetIterator.NO_MORE_DOCS; doc = postings.nextDoc()) {
+							if (liveDocs == null || liveDocs.get(doc)) {
+								docTerms.put(context.docBase + doc, term);
+								resolvedTerms.add(term);
+								break;
+							}
+						}
+					}
+				}
+			}
+			int[] docs = new int[docTerms.size()];
+			int i = 0;
+			for (Integer doc : docTerms.keySet()) {
+				docs[i++] = doc;
+			}
+			Arrays.sort(docs);
+			Map<String, GenBankRecord> termRecords = new HashMap<String, GenBankRecord>(docs.length);
+			for (int doc : docs) {
+				termRecords.put(docTerms.get(doc), DocumentMapper.mapRecord(indexSearcher.doc(doc)));
+			}
+			for (String accession : accessions) {
+				GenBankRecord record;
+				String term = accessionTerms.get(accession);
+				if (term != null) {
+					record = termRecords.get(term);
+				}
+				else {
+					record = getRecord(accession);
+				}
+				if (record != null) {
+					records.add(record);
+				}
+			}
+			return records;
+		}
+		catch (Exception e) {
+			throw new LuceneSearcherException(e.getMessage());
+		}
+		finally {
+			release(indexSearcher);
+		}
+	}
+	
+	/**
+	 * Runs an Accession through the Index analyzer to get the term it was indexed under
+	 * @param accession - Accession to analyze
+	 * @return the single Accession term, or null if the Accession does not analyze to exactly one term
+	 * @throws IOException
+	 */
+	private String analyzeAccession(String accession) throws IOException {
+		String term = null;
+		TokenStream stream = analyzer.tokenStream(ACCESSION_FIELD, accession);
+		try {
+			CharTermAttribute termAttribute = stream.addAttribute(CharTermAttribute.class);
+			stream.reset();
+			if (stream.incrementToken()) {
+				term = termAttribute.toString();
+				if (stream.incrementToken()) {
+					term = null;
+				}
+			}
+			stream.end();
+		}
+		finally {
+			stream.close();
+		}
+		return term;
+	}
+	
 	/**
 	 * Finds the Set of ancestors for a record's Geoname location
 	 * @param accession - Accession of record to check
@@ -173,15 +726,13 @@ public class LuceneSearcher {
 	 */
 	public Set<Long> findLocationAncestors(String accession) throws LuceneSearcherException {
 		Set<Long> ancestors = new HashSet<Long>();
-		IndexReader reader = null;
 		IndexSearcher indexSearcher = null;
 		Query query;
 		TopDocs documents;
 		String querystring = "Accession:"+accession;
 		try {
-			reader = DirectoryReader.open(indexDirectory);
-			indexSearcher = new IndexSearcher(reader);
-			query = queryParser.parse(querystring);
+			indexSearcher = searcherManager.acquire();
+			query = queryCache.parse(querystring);
 			documents = indexSearcher.search(query, 1);
 			if (documents.scoreDocs != null && documents.scoreDocs.length == 1) {
 				Document document = indexSearcher.doc(documents.scoreDocs[0].doc);
@@ -195,14 +746,7 @@ public class LuceneSearcher {
 			throw new LuceneSearcherException(e.getMessage());
 		}
 		finally {
-			try {
-				if (reader != null) {
-					reader.close();
-				}
-			}
-			catch (IOException ioe) {
-				log.warning("Could not close IndexReader: "+ioe.getMessage()); 
-			}
+			release(indexSearcher);
 		}
 	}
 
@@ -214,14 +758,12 @@ public class LuceneSearcher {
 	 */
 	public GenBankRecord getRecord(String accession) throws LuceneSearcherException {
 		IndexSearcher indexSearcher = null;
-		IndexReader reader = null;
 		Query query;
 		TopDocs documents;
 		String querystring = "Accession:"+accession;
 		try {
-			reader = DirectoryReader.open(indexDirectory);
-			indexSearcher = new IndexSearcher(reader);
-			query = queryParser.parse(querystring);
+			indexSearcher = searcherManager.acquire();
+			query = queryCache.parse(querystring);
 			documents = indexSearcher.search(query, 1);
 			if (documents.scoreDocs != null && documents.scoreDocs.length == 1) {
 				Document document = indexSearcher.doc(documents.scoreDocs[0].doc);
@@ -235,14 +777,7 @@ public class LuceneSearcher {
 			throw new LuceneSearcherException(e.getMessage());
 		}
 		finally {
-			try {
-				if (reader != null) {
-					reader.close();
-				}
-			}
-			catch (IOException ioe) {
-				log.warning("Could not close IndexReader: "+ioe.getMessage()); 
-			}
+			release(indexSearcher);
 		}
 	}
 	
@@ -0,0 +1,109 @@
+package edu.asu.zoophy.rest.index;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.lucene.analysis.Analyzer;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.Query;
+
+/**
+ * Thread-safe Lucene query parsing with a bounded LRU of parsed Queries
+ * @author devdemetri
+ */
+public class ParsedQueryCache {
+
+	private final String defaultField;
+	private final Analyzer analyzer;
+	private final int maxEntries;
+	private final Map<String, Query> queries;
+	private final ThreadLocal<QueryParser> parsers;
+	private final AtomicLong hits = new AtomicLong(0);
+	private final AtomicLong misses = new AtomicLong(0);
+
+	/**
+	 * @param defaultField - default field for unqualified query terms
+	 * @param analyzer - Analyzer shared by every parser
+	 * @param maxEntries - maximum number of parsed Queries to keep
+	 */
+	public ParsedQueryCache(String defaultField, Analyzer analyzer, final int maxEntries) {
+		this.defaultField = defaultField;
+		this.analyzer = analyzer;
+		this.maxEntries = maxEntries;
+		queries = new LinkedHashMap<String, Query>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Query> eldest) {
+				return size() > maxEntries;
+			}
+		};
+		parsers = new ThreadLocal<QueryParser>() {
+			@Override
+			protected QueryParser initialValue() {
+				return new QueryParser(ParsedQueryCache.this.defaultField, ParsedQueryCache.this.analyzer);
+			}
+		};
+	}
+
+	/**
+	 * Retrieves the parsed Query for the given query string, parsing and caching it on a miss
+	 * @param queryString - valid Lucene query string
+	 * @return parsed Query
+	 * @throws ParseException if the query string is not valid
+	 */
+	public Query getQuery(String queryString) throws ParseException {
+		String key = normalize(queryString);
+		Query query;
+		synchronized (queries) {
+			query = queries.get(key);
+		}
+		if (query != null) {
+			hits.incrementAndGet();
+			return query;
+		}
+		misses.incrementAndGet();
+		query = parse(key);
+		if (maxEntries > 0) {
+			synchronized (queries) {
+				queries.put(key, query);
+			}
+		}
+		return query;
+	}
+
+	/**
+	 * Parses the given query string without caching the result
+	 * @param queryString - valid Lucene query string
+	 * @return parsed Query
+	 * @throws ParseException if the query string is not valid
+	 */
+	public Query parse(String queryString) throws ParseException {
+		return parsers.get().parse(queryString);
+	}
+
+	/**
+	 * Normalizes a query string so equivalent queries share one cache entry
+	 * @param queryString - raw query string
+	 * @return trimmed query string with collapsed whitespace
+	 */
+	static String normalize(String queryString) {
+		return queryString.trim().replaceAll("\\s+", " ");
+	}
+
+	public int size() {
+		synchronized (queries) {
+			return queries.size();
+		}
+	}
+
+	public long getHits() {
+		return hits.get();
+	}
+
+	public long getMisses() {
+		return misses.get();
+	}
+
+}
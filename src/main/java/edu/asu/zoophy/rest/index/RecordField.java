@@ -0,0 +1,68 @@
+package edu.asu.zoophy.rest.index;
+
+import java.util.EnumSet;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * GenBankRecord fields that a search can be projected down to, with the stored Lucene fields each one needs
+ * @author devdemetri
+ */
+public enum RecordField {
+	ACCESSION("Accession"),
+	DATE("Date", "NormalizedDate"),
+	DEFINITION("Definition"),
+	ORGANISM("Organism", "OrganismID"),
+	STRAIN("Strain"),
+	SEGMENT_LENGTH("SegmentLength"),
+	PH1N1("PH1N1"),
+	LOCATION("GeonameID", "Location", "LocationType", "Latitude", "Longitude", "Country", "State"),
+	COUNTRY("Country"),
+	HOST("HostNormalizedName", "HostID"),
+	GENES("Gene");
+
+	private final String[] indexFields;
+
+	private RecordField(String... indexFields) {
+		this.indexFields = indexFields;
+	}
+
+	/**
+	 * @return stored Lucene fields needed to map this record field
+	 */
+	public String[] getIndexFields() {
+		return indexFields;
+	}
+
+	/**
+	 * Parses a comma separated list of record field names, such as "accession,date,country"
+	 * @param fieldList - comma separated field names, case insensitive
+	 * @return requested RecordFields, always including ACCESSION
+	 * @throws IllegalArgumentException if a field name is not recognized
+	 */
+	public static Set<RecordField> parse(String fieldList) {
+		Set<RecordField> fields = EnumSet.of(ACCESSION);
+		for (String name : fieldList.split(",")) {
+			if (!name.trim().isEmpty()) {
+				fields.add(RecordField.valueOf(name.trim().toUpperCase()));
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Collects the stored Lucene fields needed for a projection
+	 * @param fields - requested RecordFields
+	 * @return stored Lucene field names to load
+	 */
+	public static Set<String> indexFieldsFor(Set<RecordField> fields) {
+		Set<String> indexFields = new HashSet<String>();
+		for (RecordField field : fields) {
+			for (String indexField : field.indexFields) {
+				indexFields.add(indexField);
+			}
+		}
+		return indexFields;
+	}
+
+}
@@ -0,0 +1,82 @@
+package edu.asu.zoophy.rest.index;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque paging cursor pointing at the last document of a page within one recorded searcher, bound to the query that produced the page
+ * @author devdemetri
+ */
+class SearchCursor {
+
+	private final long searcherVersion;
+	private final int lastDoc;
+	private final int queryHash;
+
+	SearchCursor(long searcherVersion, int lastDoc, int queryHash) {
+		this.searcherVersion = searcherVersion;
+		this.lastDoc = lastDoc;
+		this.queryHash = queryHash;
+	}
+
+	/**
+	 * @param querystring - Lucene query string
+	 * @return hash of the normalized query string, so that equivalent spellings of a query share cursors
+	 */
+	static int hashQuery(String querystring) {
+		return ParsedQueryCache.normalize(querystring).hashCode();
+	}
+
+	long getSearcherVersion() {
+		return searcherVersion;
+	}
+
+	int getLastDoc() {
+		return lastDoc;
+	}
+
+	int getQueryHash() {
+		return queryHash;
+	}
+
+	/**
+	 * @param querystring - Lucene query string of the requested page
+	 * @return true if the cursor was produced by the same query
+	 */
+	boolean isForQuery(String querystring) {
+		return queryHash == hashQuery(querystring);
+	}
+
+	/**
+	 * @return URL safe String form of the cursor
+	 */
+	String encode() {
+		String plain = Long.toString(searcherVersion, 36) + ":" + Integer.toString(lastDoc, 36) + ":" + Integer.toUnsignedString(queryHash, 36);
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(plain.getBytes(StandardCharsets.US_ASCII));
+	}
+
+	/**
+	 * Decodes a cursor previously produced by encode()
+	 * @param cursor - encoded cursor
+	 * @return decoded SearchCursor
+	 * @throws InvalidLuceneQueryException if the cursor is malformed
+	 */
+	static SearchCursor decode(String cursor) throws InvalidLuceneQueryException {
+		try {
+			String plain = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.US_ASCII);
+			String[] parts = plain.split(":");
+			if (parts.length != 3) {
+				throw new IllegalArgumentException("expected 3 parts, found "+parts.length);
+			}
+			int lastDoc = Integer.parseInt(parts[1], 36);
+			if (lastDoc < 0) {
+				throw new IllegalArgumentException("negative document");
+			}
+			return new SearchCursor(Long.parseLong(parts[0], 36), lastDoc, Integer.parseUnsignedInt(parts[2], 36));
+		}
+		catch (IllegalArgumentException iae) {
+			throw new InvalidLuceneQueryException("Invalid search cursor: "+cursor);
+		}
+	}
+
+}
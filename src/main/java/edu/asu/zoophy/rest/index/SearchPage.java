@@ -0,0 +1,51 @@
+package edu.asu.zoophy.rest.index;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+
+/**
+ * One page of GenBankRecord search results, with the cursor for the following page
+ * @author devdemetri
+ */
+public class SearchPage {
+
+	private List<GenBankRecord> records;
+	private String nextCursor;
+	private int totalHits;
+
+	public SearchPage() {
+		records = new LinkedList<GenBankRecord>();
+		nextCursor = null;
+		totalHits = 0;
+	}
+
+	public List<GenBankRecord> getRecords() {
+		return records;
+	}
+
+	public void setRecords(List<GenBankRecord> records) {
+		this.records = records;
+	}
+
+	/**
+	 * @return opaque cursor for the next page, or null if this is the last page
+	 */
+	public String getNextCursor() {
+		return nextCursor;
+	}
+
+	public void setNextCursor(String nextCursor) {
+		this.nextCursor = nextCursor;
+	}
+
+	public int getTotalHits() {
+		return totalHits;
+	}
+
+	public void setTotalHits(int totalHits) {
+		this.totalHits = totalHits;
+	}
+
+}
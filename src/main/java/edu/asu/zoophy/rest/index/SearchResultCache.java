@@ -0,0 +1,242 @@
+package edu.asu.zoophy.rest.index;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+import edu.asu.zoophy.rest.genbank.Gene;
+import edu.asu.zoophy.rest.genbank.Host;
+import edu.asu.zoophy.rest.genbank.Location;
+import edu.asu.zoophy.rest.genbank.Sequence;
+
+/**
+ * LRU cache of search results and counts, bounded by approximate byte weight.
+ * Every entry belongs to the Index commit generation it was computed against, and the whole cache is dropped once a newer generation is seen.
+ * Cached GenBankRecords are handed out as they are, without copying, so callers must treat returned records as read-only.
+ * @author devdemetri
+ */
+public class SearchResultCache {
+
+	private final static long OBJECT_OVERHEAD = 48;
+	private final static long COUNT_WEIGHT = 64;
+
+	private final long maxWeight;
+	private final Map<String, CachedResult> results;
+	private long weight = 0;
+	private long generation = -1;
+	private long hits = 0;
+	private long misses = 0;
+	private long evictions = 0;
+
+	private static class CachedResult {
+		private final List<GenBankRecord> records;
+		private final Integer count;
+		private final long weight;
+
+		CachedResult(List<GenBankRecord> records, Integer count, long weight) {
+			this.records = records;
+			this.count = count;
+			this.weight = weight;
+		}
+	}
+
+	/**
+	 * @param maxWeight - maximum approximate size of cached results in bytes
+	 */
+	public SearchResultCache(long maxWeight) {
+		this.maxWeight = maxWeight;
+		results = new LinkedHashMap<String, CachedResult>(64, 0.75f, true);
+	}
+
+	/**
+	 * Retrieves cached search results
+	 * @param queryString - Lucene query string
+	 * @param maxRecords - maximum results requested
+	 * @param currentGeneration - commit generation of the searcher in use
+	 * @return new List of the cached records, which are shared with the cache and must not be modified, or null if not cached for this generation
+	 */
+	public List<GenBankRecord> getRecords(String queryString, int maxRecords, long currentGeneration) {
+		return getRecords(queryString, maxRecords, "", currentGeneration);
+	}
+
+	/**
+	 * Retrieves cached search results for a field projection
+	 * @param queryString - Lucene query string
+	 * @param maxRecords - maximum results requested
+	 * @param projection - String form of the requested fields, empty for full records
+	 * @param currentGeneration - commit generation of the searcher in use
+	 * @return new List of the cached records, which are shared with the cache and must not be modified, or null if not cached for this generation
+	 */
+	public synchronized List<GenBankRecord> getRecords(String queryString, int maxRecords, String projection, long currentGeneration) {
+		CachedResult result = lookup(recordsKey(queryString, maxRecords, projection), currentGeneration);
+		if (result == null) {
+			return null;
+		}
+		return new ArrayList<GenBankRecord>(result.records);
+	}
+
+	/**
+	 * Caches search results
+	 * @param queryString - Lucene query string
+	 * @param maxRecords - maximum results requested
+	 * @param resultGeneration - commit generation the records were retrieved from
+	 * @param records - records to cache, which must not be modified afterwards
+	 */
+	public void putRecords(String queryString, int maxRecords, long resultGeneration, List<GenBankRecord> records) {
+		putRecords(queryString, maxRecords, "", resultGeneration, records);
+	}
+
+	/**
+	 * Caches search results for a field projection
+	 * @param queryString - Lucene query string
+	 * @param maxRecords - maximum results requested
+	 * @param projection - String form of the requested fields, empty for full records
+	 * @param resultGeneration - commit generation the records were retrieved from
+	 * @param records - records to cache, which must not be modified afterwards
+	 */
+	public synchronized void putRecords(String queryString, int maxRecords, String projection, long resultGeneration, List<GenBankRecord> records) {
+		long recordsWeight = OBJECT_OVERHEAD + queryString.length() * 2;
+		for (GenBankRecord record : records) {
+			recordsWeight += estimateWeight(record);
+		}
+		store(recordsKey(queryString, maxRecords, projection), resultGeneration, new CachedResult(new ArrayList<GenBankRecord>(records), null, recordsWeight));
+	}
+
+	/**
+	 * Retrieves a cached search count
+	 * @param queryString - Lucene query string
+	 * @param currentGeneration - commit generation of the searcher in use
+	 * @return the cached count, or null if not cached for this generation
+	 */
+	public synchronized Integer getCount(String queryString, long currentGeneration) {
+		CachedResult result = lookup(countKey(queryString), currentGeneration);
+		if (result == null) {
+			return null;
+		}
+		return result.count;
+	}
+
+	/**
+	 * Caches a search count
+	 * @param queryString - Lucene query string
+	 * @param resultGeneration - commit generation the count was computed from
+	 * @param count - count to cache
+	 */
+	public synchronized void putCount(String queryString, long resultGeneration, int count) {
+		store(countKey(queryString), resultGeneration, new CachedResult(null, count, COUNT_WEIGHT + queryString.length() * 2));
+	}
+
+	private CachedResult lookup(String key, long currentGeneration) {
+		advanceGeneration(currentGeneration);
+		CachedResult result = null;
+		if (currentGeneration == generation) {
+			result = results.get(key);
+		}
+		if (result == null) {
+			misses++;
+		}
+		else {
+			hits++;
+		}
+		return result;
+	}
+
+	private void store(String key, long resultGeneration, CachedResult result) {
+		advanceGeneration(resultGeneration);
+		if (resultGeneration != generation || result.weight > maxWeight) {
+			return;
+		}
+		CachedResult previous = results.put(key, result);
+		if (previous != null) {
+			weight -= previous.weight;
+		}
+		weight += result.weight;
+		Iterator<CachedResult> eldest = results.values().iterator();
+		while (weight > maxWeight && eldest.hasNext()) {
+			weight -= eldest.next().weight;
+			eldest.remove();
+			evictions++;
+		}
+	}
+
+	/**
+	 * Drops every cached result once a newer Index generation is seen
+	 * @param newGeneration - commit generation of a searcher
+	 */
+	private void advanceGeneration(long newGeneration) {
+		if (newGeneration > generation) {
+			results.clear();
+			weight = 0;
+			generation = newGeneration;
+		}
+	}
+
+	private static String recordsKey(String queryString, int maxRecords, String projection) {
+		return "R" + maxRecords + projection + ":" + ParsedQueryCache.normalize(queryString);
+	}
+
+	private static String countKey(String queryString) {
+		return "C:" + ParsedQueryCache.normalize(queryString);
+	}
+
+	/**
+	 * Approximates the heap size of a GenBankRecord from its Strings and child objects
+	 * @param record - record to weigh
+	 * @return approximate size in bytes
+	 */
+	static long estimateWeight(GenBankRecord record) {
+		long recordWeight = OBJECT_OVERHEAD + weigh(record.getAccession());
+		Sequence sequence = record.getSequence();
+		if (sequence != null) {
+			recordWeight += OBJECT_OVERHEAD + weigh(sequence.getAccession()) + weigh(sequence.getDefinition()) + weigh(sequence.getOrganism())
+					+ weigh(sequence.getIsolate()) + weigh(sequence.getStrain()) + weigh(sequence.getUnNormalizedDate())
+					+ weigh(sequence.getCollectionDate()) + weigh(sequence.getComment()) + weigh(sequence.getRawSequence());
+		}
+		Location location = record.getGeonameLocation();
+		if (location != null) {
+			recordWeight += OBJECT_OVERHEAD + weigh(location.getAccession()) + weigh(location.getLocation()) + weigh(location.getGeonameType())
+					+ weigh(location.getCountry()) + weigh(location.getState()) + weigh(location.getHierarchy());
+		}
+		Host host = record.getHost();
+		if (host != null) {
+			recordWeight += OBJECT_OVERHEAD + weigh(host.getAccession()) + weigh(host.getName());
+		}
+		if (record.getGenes() != null) {
+			for (Gene gene : record.getGenes()) {
+				recordWeight += OBJECT_OVERHEAD + weigh(gene.getAccession()) + weigh(gene.getName());
+			}
+		}
+		return recordWeight;
+	}
+
+	private static long weigh(String value) {
+		if (value == null) {
+			return 0;
+		}
+		return OBJECT_OVERHEAD + value.length() * 2;
+	}
+
+	public synchronized int size() {
+		return results.size();
+	}
+
+	public synchronized long getWeight() {
+		return weight;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+}
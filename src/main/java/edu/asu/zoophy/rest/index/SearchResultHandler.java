@@ -0,0 +1,20 @@
+package edu.asu.zoophy.rest.index;
+
+import java.io.IOException;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+
+/**
+ * Receives search results one at a time as they are read from the Index
+ * @author devdemetri
+ */
+public interface SearchResultHandler {
+
+	/**
+	 * Handles a single search result
+	 * @param record - GenBankRecord mapped from the matching Document
+	 * @throws IOException if the result could not be written
+	 */
+	void handle(GenBankRecord record) throws IOException;
+
+}
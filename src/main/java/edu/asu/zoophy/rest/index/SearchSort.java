@@ -0,0 +1,53 @@
+package edu.asu.zoophy.rest.index;
+
+import org.apache.lucene.index.DocValuesType;
+import org.apache.lucene.search.SortField;
+
+/**
+ * Server side sort orders for GenBank searches, backed by the DocValues of the matching Index field
+ * @author devdemetri
+ */
+public enum SearchSort {
+	DATE("NormalizedDate", SortField.Type.STRING, DocValuesType.SORTED, true),
+	ACCESSION("Accession", SortField.Type.STRING, DocValuesType.SORTED, false),
+	LENGTH("SegmentLength", SortField.Type.INT, DocValuesType.NUMERIC, true);
+
+	private final String field;
+	private final SortField.Type type;
+	private final DocValuesType docValuesType;
+	private final boolean isDescendingByDefault;
+
+	private SearchSort(String field, SortField.Type type, DocValuesType docValuesType, boolean isDescendingByDefault) {
+		this.field = field;
+		this.type = type;
+		this.docValuesType = docValuesType;
+		this.isDescendingByDefault = isDescendingByDefault;
+	}
+
+	public String getField() {
+		return field;
+	}
+
+	/**
+	 * @return DocValues type the Index field needs for Lucene to sort on it
+	 */
+	public DocValuesType getDocValuesType() {
+		return docValuesType;
+	}
+
+	/**
+	 * @return true if this sort is newest or longest first unless asked otherwise
+	 */
+	public boolean isDescendingByDefault() {
+		return isDescendingByDefault;
+	}
+
+	/**
+	 * @param isDescending - sort direction
+	 * @return Lucene SortField for this sort
+	 */
+	public SortField toSortField(boolean isDescending) {
+		return new SortField(field, type, isDescending);
+	}
+
+}
@@ -0,0 +1,158 @@
+package edu.asu.zoophy.rest.index;
+
+/**
+ * Snapshot of the shared Lucene searcher's reader generation and refresh history, and of the search and Geoname location caches
+ * @author devdemetri
+ */
+public class SearcherStatistics {
+
+	private long readerVersion;
+	private long commitGeneration;
+	private int numDocs;
+	private long refreshCount;
+	private long lastRefreshTime;
+	private int queryCacheSize;
+	private long queryCacheHits;
+	private long queryCacheMisses;
+	private int resultCacheSize;
+	private long resultCacheBytes;
+	private long resultCacheHits;
+	private long resultCacheMisses;
+	private long resultCacheEvictions;
+	private int locationCacheSize;
+	private long locationCacheHits;
+	private long locationCacheMisses;
+
+	public SearcherStatistics() {
+
+	}
+
+	public long getReaderVersion() {
+		return readerVersion;
+	}
+
+	public void setReaderVersion(long readerVersion) {
+		this.readerVersion = readerVersion;
+	}
+
+	public long getCommitGeneration() {
+		return commitGeneration;
+	}
+
+	public void setCommitGeneration(long commitGeneration) {
+		this.commitGeneration = commitGeneration;
+	}
+
+	public int getNumDocs() {
+		return numDocs;
+	}
+
+	public void setNumDocs(int numDocs) {
+		this.numDocs = numDocs;
+	}
+
+	public long getRefreshCount() {
+		return refreshCount;
+	}
+
+	public void setRefreshCount(long refreshCount) {
+		this.refreshCount = refreshCount;
+	}
+
+	public long getLastRefreshTime() {
+		return lastRefreshTime;
+	}
+
+	public void setLastRefreshTime(long lastRefreshTime) {
+		this.lastRefreshTime = lastRefreshTime;
+	}
+
+	public int getQueryCacheSize() {
+		return queryCacheSize;
+	}
+
+	public void setQueryCacheSize(int queryCacheSize) {
+		this.queryCacheSize = queryCacheSize;
+	}
+
+	public long getQueryCacheHits() {
+		return queryCacheHits;
+	}
+
+	public void setQueryCacheHits(long queryCacheHits) {
+		this.queryCacheHits = queryCacheHits;
+	}
+
+	public long getQueryCacheMisses() {
+		return queryCacheMisses;
+	}
+
+	public void setQueryCacheMisses(long queryCacheMisses) {
+		this.queryCacheMisses = queryCacheMisses;
+	}
+
+	public int getResultCacheSize() {
+		return resultCacheSize;
+	}
+
+	public void setResultCacheSize(int resultCacheSize) {
+		this.resultCacheSize = resultCacheSize;
+	}
+
+	public long getResultCacheBytes() {
+		return resultCacheBytes;
+	}
+
+	public void setResultCacheBytes(long resultCacheBytes) {
+		this.resultCacheBytes = resultCacheBytes;
+	}
+
+	public long getResultCacheHits() {
+		return resultCacheHits;
+	}
+
+	public void setResultCacheHits(long resultCacheHits) {
+		this.resultCacheHits = resultCacheHits;
+	}
+
+	public long getResultCacheMisses() {
+		return resultCacheMisses;
+	}
+
+	public void setResultCacheMisses(long resultCacheMisses) {
+		this.resultCacheMisses = resultCacheMisses;
+	}
+
+	public long getResultCacheEvictions() {
+		return resultCacheEvictions;
+	}
+
+	public void setResultCacheEvictions(long resultCacheEvictions) {
+		this.resultCacheEvictions = resultCacheEvictions;
+	}
+
+	public int getLocationCacheSize() {
+		return locationCacheSize;
+	}
+
+	public void setLocationCacheSize(int locationCacheSize) {
+		this.locationCacheSize = locationCacheSize;
+	}
+
+	public long getLocationCacheHits() {
+		return locationCacheHits;
+	}
+
+	public void setLocationCacheHits(long locationCacheHits) {
+		this.locationCacheHits = locationCacheHits;
+	}
+
+	public long getLocationCacheMisses() {
+		return locationCacheMisses;
+	}
+
+	public void setLocationCacheMisses(long locationCacheMisses) {
+		this.locationCacheMisses = locationCacheMisses;
+	}
+
+}
@@ -24,6 +24,7 @@ import java.util.regex.Pattern;
 
 import edu.asu.zoophy.rest.custom.FastaRecord;
 import edu.asu.zoophy.rest.database.DaoException;
+import edu.asu.zoophy.rest.database.GenBankRecordBatch;
 import edu.asu.zoophy.rest.database.GenBankRecordNotFoundException;
 import edu.asu.zoophy.rest.database.ZooPhyDAO;
 import edu.asu.zoophy.rest.genbank.ExcludedRecords;
@@ -155,6 +156,7 @@ public class SequenceAligner {
 			jobAccessions.setValidAccessions(usedAccessions);
 			if(recsGenbank.size()>0) {
 				log.info("After screening accession job includes: "+recsGenbank.size()+" records.");
+				dao.loadRawSequences(recsGenbank);
 				rawFasta = fastaFormat(recsGenbank, (job.isUsingGLM() && !job.isUsingCustomPredictors()));
 			}
 			if(fastaRecs.size()>0) {
@@ -261,8 +263,12 @@ public class SequenceAligner {
 		List<ExcludedRecords> missingDateRecords = new LinkedList<>();
 		List<ExcludedRecords> unknowndateFormatRecords = new LinkedList<>();
 		
+		GenBankRecordBatch batch = dao.retrieveMetadataRecords(accessions);
+		if (!batch.getMissingAccessions().isEmpty()) {
+			throw new GenBankRecordNotFoundException(batch.getMissingAccessions().get(0));
+		}
 		for (String accession : accessions) {
-			GenBankRecord record = dao.retrieveFullRecord(accession);
+			GenBankRecord record = batch.getRecords().get(accession);
 			try {
 				if(record.getSequence().getCollectionDate() != null  && !getFastaDate(record.getSequence().getCollectionDate()).equalsIgnoreCase("unknown")) {
 					if (record != null && record.getGeonameLocation() != null) { 
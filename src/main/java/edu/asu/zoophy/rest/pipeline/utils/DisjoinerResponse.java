@@ -16,6 +16,8 @@ public class DisjoinerResponse {
 	private List<InvalidRecords> invalidRecordList;
 	private Set<Location> distinctLocations;
 	private Boolean tooManyLocations;
+	private String disjoinLevel;
+	private List<GenBankRecord> originalRecords;
 	
 	public DisjoinerResponse(List<GenBankRecord> validRecordList, List<InvalidRecords> invalidRecordList, Set<Location> distinctLocations,Boolean tooManyLocations) {
 		this.validRecordList = validRecordList;
@@ -47,6 +49,21 @@ public class DisjoinerResponse {
 	public void setTooManyLocations(Boolean tooManyLocations) {
 		this.tooManyLocations = tooManyLocations;
 	}
+	public String getDisjoinLevel() {
+		return disjoinLevel;
+	}
+	public void setDisjoinLevel(String disjoinLevel) {
+		this.disjoinLevel = disjoinLevel;
+	}
+	/**
+	 * @return copies of the records as they were before disjoining, to disjoin them again at another level
+	 */
+	public List<GenBankRecord> getOriginalRecords() {
+		return originalRecords;
+	}
+	public void setOriginalRecords(List<GenBankRecord> originalRecords) {
+		this.originalRecords = originalRecords;
+	}
 	
 	
 }
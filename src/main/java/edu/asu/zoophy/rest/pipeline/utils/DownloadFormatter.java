@@ -1,7 +1,10 @@
 package edu.asu.zoophy.rest.pipeline.utils;
 
+import java.io.IOException;
+import java.io.Writer;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.StringJoiner;
@@ -14,6 +17,8 @@ import org.springframework.stereotype.Component;
 import edu.asu.zoophy.rest.JobConstants;
 import edu.asu.zoophy.rest.JobRecord;
 import edu.asu.zoophy.rest.database.DaoException;
+import edu.asu.zoophy.rest.database.GenBankRecordBatch;
+import edu.asu.zoophy.rest.database.GenBankRecordHandler;
 import edu.asu.zoophy.rest.database.GenBankRecordNotFoundException;
 import edu.asu.zoophy.rest.database.ZooPhyDAO;
 import edu.asu.zoophy.rest.genbank.GenBankRecord;
@@ -52,8 +57,98 @@ public class DownloadFormatter {
 	public String generateDownload(List<JobRecord> records, List<String> columns, DownloadFormat format) throws ParameterException, FormatterException {
 		String result = null;
 		List<String > accessions = new ArrayList<>();
+		List<GenBankRecord> fastaRecords = splitRecords(records, accessions);
+		setupColumns(columns);
+		try {
+			switch (format) {
+				case CSV:
+					result = generateCSV(accessions, fastaRecords, columns);
+					break;
+				case FASTA:
+					result = generateFASTA(accessions, fastaRecords, columns);
+					break;
+				default:
+					log.log(Level.SEVERE, "Unimplemented format type: "+format.toString());
+					throw new ParameterException(format.toString());
+			}
+			return result;
+		}
+		catch (ParameterException pe) {
+			throw pe;
+		}
+		catch (Exception e) {
+			log.log(Level.SEVERE, "Error generating download: "+e.getMessage());
+			throw new FormatterException("Error Generating Download!");
+		}
+	}
+	
+	/**
+	 * Writes the download for given format straight to a Writer, streaming GenBank records from a database cursor
+	 * so that only the record being formatted is held in memory. GenBank accessions that are not found are left out.
+	 * @param records - records to download
+	 * @param columns - columns selected
+	 * @param format - download format
+	 * @param out - Writer for the download, such as the HTTP response
+	 * @throws ParameterException
+	 * @throws FormatterException
+	 * @throws IOException if the download could not be written
+	 */
+	public void writeDownload(List<JobRecord> records, List<String> columns, final DownloadFormat format, final Writer out) throws ParameterException, FormatterException, IOException {
+		List<String > accessions = new ArrayList<>();
+		List<GenBankRecord> fastaRecords = splitRecords(records, accessions);
+		setupColumns(columns);
+		try {
+			switch (format) {
+				case CSV:
+					writeHeader(out, columns);
+					break;
+				case FASTA:
+					columns.remove(DownloadColumn.RAW_SEQUENCE);
+					break;
+				default:
+					log.log(Level.SEVERE, "Unimplemented format type: "+format.toString());
+					throw new ParameterException(format.toString());
+			}
+			final List<String> downloadColumns = columns;
+			int streamed = dao.streamRecords(accessions, format == DownloadFormat.FASTA, new GenBankRecordHandler() {
+				@Override
+				public void handle(GenBankRecord record) throws IOException {
+					try {
+						writeRecord(out, record, downloadColumns, null, format, JobConstants.SOURCE_GENBANK);
+					}
+					catch (IOException ioe) {
+						throw ioe;
+					}
+					catch (Exception e) {
+						throw new IOException("Error formatting record "+record.getAccession()+": "+e.getMessage(), e);
+					}
+				}
+			});
+			//streamRecords skips repeated accessions, so only unique ones can be missing
+			int requested = new HashSet<String>(accessions).size();
+			if (streamed < requested) {
+				log.warning("Records not found for "+(requested-streamed)+" download accessions");
+			}
+			writeUploadedRecords(out, fastaRecords, columns, format);
+			out.flush();
+		}
+		catch (ParameterException | IOException e) {
+			throw e;
+		}
+		catch (Exception e) {
+			log.log(Level.SEVERE, "Error writing download: "+e.getMessage());
+			throw new FormatterException("Error Generating Download!");
+		}
+	}
+	
+	/**
+	 * Separates GenBank accessions from user uploaded FASTA records
+	 * @param records - records to download
+	 * @param accessions - list to add GenBank accessions to
+	 * @return GenBankRecords built from the user uploaded FASTA records
+	 */
+	private List<GenBankRecord> splitRecords(List<JobRecord> records, List<String> accessions) {
 		List<GenBankRecord> fastaRecords = new ArrayList<>();
-		
 		for(JobRecord record : records) {
 			if(record.getResourceSource()==JobConstants.SOURCE_GENBANK)
 				accessions.add(record.getId());
@@ -72,7 +167,14 @@ public class DownloadFormatter {
 				fastaRecords.add(genBankRecord);
 			}
 		}
-		
+		return fastaRecords;
+	}
+	
+	/**
+	 * Adds the ID column, and the default columns if none were selected
+	 * @param columns - columns selected
+	 */
+	private void setupColumns(List<String> columns) {
 		columns.add(0,DownloadColumn.ID);
 		if(columns.size()==0) {
 			columns.add(DownloadColumn.GENES);
@@ -84,27 +186,6 @@ public class DownloadFormatter {
 			columns.add(DownloadColumn.COUNTRY);
 			columns.add(DownloadColumn.LENGTH);
 		}
-		try {
-			switch (format) {
-				case CSV:
-					result = generateCSV(accessions, fastaRecords, columns);
-					break;
-				case FASTA:
-					result = generateFASTA(accessions, fastaRecords, columns);
-					break;
-				default:
-					log.log(Level.SEVERE, "Unimplemented format type: "+format.toString());
-					throw new ParameterException(format.toString());
-			}
-			return result;
-		}
-		catch (ParameterException pe) {
-			throw pe;
-		}
-		catch (Exception e) {
-			log.log(Level.SEVERE, "Error generating download: "+e.getMessage());
-			throw new FormatterException("Error Generating Download!");
-		}
 	}
 	
 	/**
@@ -117,49 +198,16 @@ public class DownloadFormatter {
 	 */
 	private String generateCSV(List<String> accessions, List<GenBankRecord> fastaRecords, List<String> columns) throws LuceneSearcherException, FormatterException {
 		try {
-			List<GenBankRecord> records = loadRecords(accessions);
-			
-			//Headers
-			StringJoiner stringJoiner = new StringJoiner(",");
+			List<GenBankRecord> records = loadRecords(accessions, false);
 			StringBuilder csv = new StringBuilder();
-			for(String column: columns) {
-				stringJoiner.add(column);
-			}
-			csv.append(stringJoiner);
-			csv.append("\n");
-			HashMap<String,Location> locMap = new HashMap<String,Location>();
+			writeHeader(csv, columns);
 			
 			//GenBank records
 			for (GenBankRecord record : records) {
-				stringJoiner = new StringJoiner(",");
-				for(String column: columns) {
-					stringJoiner.add(columnValue(record, column, null, DownloadFormat.CSV, JobConstants.SOURCE_GENBANK));	
-				}
-				csv.append(stringJoiner);
-				csv.append("\n");
-			}
-			
-			//User uploaded FASTA records
-			for (GenBankRecord record : fastaRecords) {
-				Location location = null;
-				stringJoiner = new StringJoiner(",");
-				for(String column: columns) {
-					if((column.equals(DownloadColumn.COUNTRY) || column.equals(DownloadColumn.STATE))
-							&& location == null) {
-						String geonameID = record.getGeonameLocation().getGeonameID().toString();
-						if (locMap.containsKey(geonameID)){
-							location = locMap.get(geonameID);
-						} else {
-							location = hierarchyIndexSearcher.findGeonameLocation(geonameID);
-							locMap.put(geonameID, location);
-						}
-					}
-					stringJoiner.add(columnValue(record, column, location, DownloadFormat.CSV, JobConstants.SOURCE_FASTA));	
-				}
-				csv.append(stringJoiner);
-				csv.append("\n");
+				writeRecord(csv, record, columns, null, DownloadFormat.CSV, JobConstants.SOURCE_GENBANK);
 			}
 			
+			writeUploadedRecords(csv, fastaRecords, columns, DownloadFormat.CSV);
 			return csv.toString();
 		}
 		catch (Exception e) {
@@ -179,55 +227,18 @@ public class DownloadFormatter {
 	 */
 	private String generateFASTA(List<String> accessions, List<GenBankRecord> fastaRecords, List<String> columns) throws AlignerException, FormatterException {
 		try {
-			List<GenBankRecord> records = loadRecords(accessions);
+			List<GenBankRecord> records = loadRecords(accessions, true);
 			columns.remove(DownloadColumn.RAW_SEQUENCE);
 		
 			log.info("Starting Fasta formatting");
 			StringBuilder builder = new StringBuilder();
-			StringBuilder tempBuilder;
-			StringJoiner stringJoiner;
-			HashMap<String,Location> locMap = new HashMap<String,Location>();
 			
 			//GenBank Records
 			for (GenBankRecord record : records) {
-				stringJoiner = new StringJoiner("|");
-				tempBuilder = new StringBuilder();
-				tempBuilder.append(">");
-				for(String column: columns) {
-					stringJoiner.add(columnValue(record, column, null, DownloadFormat.FASTA, JobConstants.SOURCE_GENBANK));	
-				}
-				tempBuilder.append(stringJoiner);
-				tempBuilder.append("\n");
-				tempBuilder.append(rawSequenceGenerator(record));
-				builder.append(tempBuilder);
-			}
-			
-			//User uploaded FASTA records
-			for (GenBankRecord record : fastaRecords) {
-				Location location = null;
-				stringJoiner = new StringJoiner("|");
-				tempBuilder = new StringBuilder();
-				tempBuilder.append(">");
-				for(String column: columns) {
-					if((column.equals(DownloadColumn.COUNTRY) || column.equals(DownloadColumn.STATE))
-							&& location == null) {
-						String geonameID = record.getGeonameLocation().getGeonameID().toString();
-						if (locMap.containsKey(geonameID)){
-							location = locMap.get(geonameID);
-						} else {
-							location = hierarchyIndexSearcher.findGeonameLocation(geonameID);
-							locMap.put(geonameID, location);
-						}
-					}
-					stringJoiner.add(columnValue(record, column, location, DownloadFormat.FASTA, JobConstants.SOURCE_FASTA));	
-				}
-				
-				tempBuilder.append(stringJoiner);
-				tempBuilder.append("\n");
-				tempBuilder.append(rawSequenceGenerator(record));
-				builder.append(tempBuilder);
+				writeRecord(builder, record, columns, null, DownloadFormat.FASTA, JobConstants.SOURCE_GENBANK);
 			}
 			
+			writeUploadedRecords(builder, fastaRecords, columns, DownloadFormat.FASTA);
 			log.info("Fasta Formatting complete.");
 			return builder.toString();
 		}
@@ -237,6 +248,77 @@ public class DownloadFormatter {
 		}
 	}
 	
+	/**
+	 * Writes the CSV header row
+	 * @param out - download output
+	 * @param columns - columns selected
+	 * @throws IOException
+	 */
+	private void writeHeader(Appendable out, List<String> columns) throws IOException {
+		StringJoiner stringJoiner = new StringJoiner(",");
+		for(String column: columns) {
+			stringJoiner.add(column);
+		}
+		out.append(stringJoiner.toString());
+		out.append("\n");
+	}
+	
+	/**
+	 * Writes one record as a CSV row, or as a FASTA header line and its sequence
+	 * @param out - download output
+	 * @param record - record to write
+	 * @param columns - columns selected
+	 * @param location - Geoname location of a user uploaded FASTA record, null for GenBank records
+	 * @param format - download format
+	 * @param recordType - JobConstants record source
+	 * @throws IOException
+	 * @throws NormalizerException
+	 * @throws FormatterException
+	 * @throws AlignerException
+	 */
+	private void writeRecord(Appendable out, GenBankRecord record, List<String> columns, Location location, DownloadFormat format, int recordType) throws IOException, NormalizerException, FormatterException, AlignerException {
+		StringJoiner stringJoiner = new StringJoiner(format == DownloadFormat.FASTA ? "|" : ",");
+		for(String column: columns) {
+			stringJoiner.add(columnValue(record, column, location, format, recordType));
+		}
+		if (format == DownloadFormat.FASTA) {
+			out.append(">");
+			out.append(stringJoiner.toString());
+			out.append("\n");
+			out.append(rawSequenceGenerator(record));
+		}
+		else {
+			out.append(stringJoiner.toString());
+			out.append("\n");
+		}
+	}
+	
+	/**
+	 * Writes the user uploaded FASTA records, resolving their Geoname locations only when a Country or State column is selected
+	 * @param out - download output
+	 * @param fastaRecords - GenBankRecords built from the user uploaded FASTA records
+	 * @param columns - columns selected
+	 * @param format - download format
+	 * @throws Exception
+	 */
+	private void writeUploadedRecords(Appendable out, List<GenBankRecord> fastaRecords, List<String> columns, DownloadFormat format) throws Exception {
+		boolean needsLocation = columns.contains(DownloadColumn.COUNTRY) || columns.contains(DownloadColumn.STATE);
+		HashMap<String,Location> locMap = new HashMap<String,Location>();
+		for (GenBankRecord record : fastaRecords) {
+			Location location = null;
+			if (needsLocation) {
+				String geonameID = record.getGeonameLocation().getGeonameID().toString();
+				if (locMap.containsKey(geonameID)){
+					location = locMap.get(geonameID);
+				} else {
+					location = hierarchyIndexSearcher.findGeonameLocation(geonameID);
+					locMap.put(geonameID, location);
+				}
+			}
+			writeRecord(out, record, columns, location, format, JobConstants.SOURCE_FASTA);
+		}
+	}
+	
 	/**
 	 * Gets the value corresponding to the column from the record
 	 * @param record
@@ -370,11 +452,22 @@ public class DownloadFormatter {
 		}
 	}
 	
-	private List<GenBankRecord> loadRecords(List<String> accessions) throws GenBankRecordNotFoundException, DaoException{
+	/**
+	 * Loads GenBank records for a download
+	 * @param accessions - accessions of records to load
+	 * @param withSequences - whether the download needs raw sequences, CSV columns only need the record metadata
+	 * @return records in the order of the accessions
+	 * @throws GenBankRecordNotFoundException
+	 * @throws DaoException
+	 */
+	private List<GenBankRecord> loadRecords(List<String> accessions, boolean withSequences) throws GenBankRecordNotFoundException, DaoException{
 		List<GenBankRecord> records = new LinkedList<GenBankRecord>();
+		GenBankRecordBatch batch = withSequences ? dao.retrieveFullRecords(accessions) : dao.retrieveMetadataRecords(accessions);
+		if (!batch.getMissingAccessions().isEmpty()) {
+			throw new GenBankRecordNotFoundException(batch.getMissingAccessions().get(0));
+		}
 		for (String accession : accessions) {
-			GenBankRecord record = dao.retrieveFullRecord(accession);
-			records.add(record);
+			records.add(batch.getRecords().get(accession));
 		}
 		return records;
 	}
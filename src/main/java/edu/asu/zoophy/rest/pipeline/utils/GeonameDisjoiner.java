@@ -1,5 +1,6 @@
 package edu.asu.zoophy.rest.pipeline.utils;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
@@ -12,6 +13,10 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
 import java.util.logging.Logger;
 
 import edu.asu.zoophy.rest.genbank.ExcludedRecords;
@@ -19,6 +24,7 @@ import edu.asu.zoophy.rest.genbank.GenBankRecord;
 import edu.asu.zoophy.rest.genbank.InvalidRecords;
 import edu.asu.zoophy.rest.genbank.Location;
 import edu.asu.zoophy.rest.genbank.JobRecords;
+import edu.asu.zoophy.rest.index.GeonameAncestry;
 import edu.asu.zoophy.rest.index.LuceneHierarchySearcher;
 import edu.asu.zoophy.rest.index.LuceneSearcherException;
 import edu.asu.zoophy.rest.pipeline.PipelineException;
@@ -32,12 +38,16 @@ import edu.asu.zoophy.rest.pipeline.glm.GLMException;
 public class GeonameDisjoiner {
 
 	private final LuceneHierarchySearcher hierarchyIndexSearcher;
+	private final GeonameAncestry ancestry;
 	private final GeoHierarchy hierarchy = GeoHierarchy.getInstance();
+	private final LocationRegistry locationRegistry = new LocationRegistry();
 	private final int MAX_DISTINCT_LOCATIONS;
 	private Map<Long, String> US_STATES;
 	private Map<String, String> adminLevel;
 	private final Logger log;
 	private final int DISJOIN_THRESHOLD;
+	private final int PARALLELISM;
+	private static ForkJoinPool countryPool = null;
 	
 	private final String MISSING_LOCATION = "Missing Location information";
 	private final String INCOMPLETE_HIERARCHY = "Incomplete Location Hierarchy inforamtion";
@@ -45,14 +55,60 @@ public class GeonameDisjoiner {
 	private final String DEFAULT_DISJOIN_LEVEL = "PCLI";
 
 	public GeonameDisjoiner(LuceneHierarchySearcher hierarchyIndexSearcher) throws PipelineException {
+		this(hierarchyIndexSearcher, configuredParallelism());
+	}
+	
+	/**
+	 * @param hierarchyIndexSearcher - Geonames hierarchy searcher
+	 * @param parallelism - number of countries to disjoin at once, 1 disjoins them sequentially
+	 * @throws PipelineException
+	 */
+	public GeonameDisjoiner(LuceneHierarchySearcher hierarchyIndexSearcher, int parallelism) throws PipelineException {
 		this.hierarchyIndexSearcher = hierarchyIndexSearcher;
+		ancestry = hierarchyIndexSearcher.getAncestry();
 		PropertyProvider provider = PropertyProvider.getInstance();
 		adminLevel = setupAdminLevelMap();
 		MAX_DISTINCT_LOCATIONS = Integer.parseInt(provider.getProperty("job.max.locations"));
 		DISJOIN_THRESHOLD = Integer.parseInt(provider.getProperty("job.disjoiner.threshold"));
+		PARALLELISM = parallelism;
 		log = Logger.getLogger("GeonameDisjoiner");
 	}
 	
+	/**
+	 * @return job.disjoiner.parallelism, defaulting to the number of processors
+	 * @throws PipelineException
+	 */
+	private static int configuredParallelism() throws PipelineException {
+		String parallelism = PropertyProvider.getInstance().getProperty("job.disjoiner.parallelism");
+		return parallelism == null ? Runtime.getRuntime().availableProcessors() : Integer.parseInt(parallelism.trim());
+	}
+	
+	/**
+	 * Per-country disjoin result
+	 */
+	private static class CountryDisjoin {
+		
+		private final String country;
+		private final DisjoinerResponse response;
+		
+		private CountryDisjoin(String country, DisjoinerResponse response) {
+			this.country = country;
+			this.response = response;
+		}
+		
+	}
+	
+	/**
+	 * @param parallelism - number of worker threads, used only when the pool is first created
+	 * @return fork/join pool shared by every job's parallel country disjoining
+	 */
+	private static synchronized ForkJoinPool getCountryPool(int parallelism) {
+		if (countryPool == null) {
+			countryPool = new ForkJoinPool(parallelism);
+		}
+		return countryPool;
+	}
+	
 	/**
 	 * Disjoins given list of records, filtering out records with invalid or too general locations. Remaining locations are normalized to a set of disjoint locations.
 	 * @param recordsToCheck - list of records to Disjoin
@@ -78,24 +134,29 @@ public class GeonameDisjoiner {
 		if(countryBasedRecords.size() > MAX_DISTINCT_LOCATIONS) {
 			errorTooManyLocations(distinctLocations);
 		}
-		for(Map.Entry<String, List<GenBankRecord>> entry: countryBasedRecords.entrySet()) {
-			String country = entry.getKey();
-			List<GenBankRecord> records = entry.getValue();
-			Boolean oneCountry = false;		//is job has just one country
-			distinctLocations = removeFromDistinctLocations(distinctLocations, country);
-			
-			Map<String,Integer> types = adminLevelsMap(records);
-			String disjoinLevel = calculateDisjoinLevel(types,countryBasedRecords.size());
-			log.info("Admin levels in "+country +": "+types);
-			log.info("Disjoiner level: "+disjoinLevel);
-			if(distinctLocations.size() == 0) {
-				oneCountry = true;
-			}
-			DisjoinerResponse filteredCountryRecords = disjoinRecords(records, disjoinLevel, distinctLocations, ancestors, false, oneCountry);
-			
-			validRecords.addAll(filteredCountryRecords.getValidRecordList());
-			invalidRecords.addAll(filteredCountryRecords.getInvalidRecordList());
-			distinctLocations = filteredCountryRecords.getDistinctLocations();
+		if (PARALLELISM > 1 && countryBasedRecords.size() > 1) {
+			distinctLocations = disjoinCountriesInParallel(countryBasedRecords, distinctLocations, ancestors, validRecords, invalidRecords);
+		}
+		else {
+			for(Map.Entry<String, List<GenBankRecord>> entry: countryBasedRecords.entrySet()) {
+				String country = entry.getKey();
+				List<GenBankRecord> records = entry.getValue();
+				Boolean oneCountry = false;		//is job has just one country
+				distinctLocations = removeFromDistinctLocations(distinctLocations, country);
+				
+				Map<String,Integer> types = adminLevelsMap(records);
+				String disjoinLevel = calculateDisjoinLevel(types,countryBasedRecords.size());
+				log.info("Admin levels in "+country +": "+types);
+				log.info("Disjoiner level: "+disjoinLevel);
+				if(distinctLocations.size() == 0) {
+					oneCountry = true;
+				}
+				DisjoinerResponse filteredCountryRecords = disjoinRecords(records, disjoinLevel, distinctLocations, ancestors, false, oneCountry);
+				
+				validRecords.addAll(filteredCountryRecords.getValidRecordList());
+				invalidRecords.addAll(filteredCountryRecords.getInvalidRecordList());
+				distinctLocations = filteredCountryRecords.getDistinctLocations();
+			}
 		}
 		
 		log.info("Distinct locations: "+distinctLocations.size());
@@ -106,6 +167,84 @@ public class GeonameDisjoiner {
 		return jobRecords;
 	}
 	
+	/**
+	 * Disjoins every country on the shared fork/join pool, then merges the results in country order.
+	 * Countries are disjoined independently, so the limit on distinct locations is checked while merging,
+	 * and a country that pushes the job over the limit is disjoined again at country level from the copies of its records that disjoinRecords keeps,
+	 * the same as in the sequential mode.
+	 * @param countryBasedRecords - map of countries and their records, in disjoining order
+	 * @param distinctLocations - set of distinct locations, initially one per country
+	 * @param ancestors - map of record accessions and their location ancestors
+	 * @param validRecords - list to add disjoined records to
+	 * @param invalidRecords - list to add excluded records to
+	 * @return merged set of distinct locations
+	 * @throws DisjoinerException
+	 * @throws GLMException
+	 * @throws GeoHierarchyException
+	 */
+	private Set<Location> disjoinCountriesInParallel(Map<String,List<GenBankRecord>> countryBasedRecords, Set<Location> distinctLocations, final Map<String,Set<Long>> ancestors, List<GenBankRecord> validRecords, List<InvalidRecords> invalidRecords) throws DisjoinerException, GLMException, GeoHierarchyException {
+		final int countryCount = countryBasedRecords.size();
+		ForkJoinPool pool = getCountryPool(PARALLELISM);
+		List<Future<CountryDisjoin>> countryDisjoins = new ArrayList<Future<CountryDisjoin>>(countryCount);
+		try {
+			for (Map.Entry<String, List<GenBankRecord>> entry : countryBasedRecords.entrySet()) {
+				final String country = entry.getKey();
+				final List<GenBankRecord> records = entry.getValue();
+				countryDisjoins.add(pool.submit(new Callable<CountryDisjoin>() {
+					@Override
+					public CountryDisjoin call() throws Exception {
+						Map<String,Integer> types = adminLevelsMap(records);
+						String disjoinLevel = calculateDisjoinLevel(types, countryCount);
+						log.info("Admin levels in "+country +": "+types);
+						log.info("Disjoiner level: "+disjoinLevel);
+						DisjoinerResponse response = disjoinRecords(records, disjoinLevel, new LinkedHashSet<Location>(), ancestors, false, false);
+						return new CountryDisjoin(country, response);
+					}
+				}));
+			}
+			for (Future<CountryDisjoin> countryDisjoin : countryDisjoins) {
+				CountryDisjoin result = countryDisjoin.get();
+				distinctLocations = removeFromDistinctLocations(distinctLocations, result.country);
+				DisjoinerResponse response = result.response;
+				Set<Location> mergedLocations = new LinkedHashSet<Location>(distinctLocations);
+				mergedLocations.addAll(response.getDistinctLocations());
+				if (mergedLocations.size() > MAX_DISTINCT_LOCATIONS) {
+					if (DEFAULT_DISJOIN_LEVEL.equals(response.getDisjoinLevel())) {
+						errorTooManyLocations(mergedLocations);
+					}
+					response = disjoinRecords(response.getOriginalRecords(), DEFAULT_DISJOIN_LEVEL, distinctLocations, ancestors, true, false);
+					mergedLocations = response.getDistinctLocations();
+				}
+				validRecords.addAll(response.getValidRecordList());
+				invalidRecords.addAll(response.getInvalidRecordList());
+				distinctLocations = mergedLocations;
+			}
+			return distinctLocations;
+		}
+		catch (ExecutionException ee) {
+			Throwable cause = ee.getCause();
+			if (cause instanceof DisjoinerException) {
+				throw (DisjoinerException) cause;
+			}
+			if (cause instanceof GLMException) {
+				throw (GLMException) cause;
+			}
+			if (cause instanceof GeoHierarchyException) {
+				throw (GeoHierarchyException) cause;
+			}
+			throw new DisjoinerException("Uncaught Disjoiner error:"+cause.getMessage(), "Error Disjoining Locations");
+		}
+		catch (InterruptedException ie) {
+			Thread.currentThread().interrupt();
+			throw new DisjoinerException("Interrupted while disjoining countries", "Error Disjoining Locations");
+		}
+		finally {
+			for (Future<CountryDisjoin> countryDisjoin : countryDisjoins) {
+				countryDisjoin.cancel(true);
+			}
+		}
+	}
+	
 	/**
 	 * Remove any record which is missing location information or information about it;s ancestors
 	 * @param recordsToCheck - list of records to DisJoin
@@ -212,14 +351,14 @@ public class GeonameDisjoiner {
 						for (Location parent : locations) {
 							if (isAncestor(ancestors, parent, recordLocation)) {
 								isDisjoint = false;
-								if (!parent.getGeonameID().equals(recordLocation.getGeonameID())) {
-									record.setGeonameLocation(parent);
-								}
+								record.setGeonameLocation(parent);
 								break;
 							}
 						}
 					}
 					if (isDisjoint) {
+						recordLocation = locationRegistry.intern(recordLocation);
+						record.setGeonameLocation(recordLocation);
 						locations.add(recordLocation);
 					}
 				}
@@ -275,15 +414,14 @@ public class GeonameDisjoiner {
 				Location location = record.getGeonameLocation();
 				if(!location.getGeonameType().equals(commonLevel)) {
 					Location courselocation = selectedAncestor.get(location.getGeonameID());
-					if(courselocation==null) {
-						Set<Long> ancestorList = ancestors.get(record.getAccession());
-						courselocation = fineToCoarseLocation(ancestorList, commonLevel);
+					if(courselocation==null && !selectedAncestor.containsKey(location.getGeonameID())) {
+						courselocation = locationRegistry.intern(fineToCoarseLocation(location, commonLevel));
 						selectedAncestor.put(location.getGeonameID(), courselocation);
 					}
 					if(courselocation!=null) {
 						locationsToRemove.add(location);
 						record.setGeonameLocation(courselocation);
-						locations = addToLocations(locations, courselocation);
+						locations.add(courselocation);
 					}else {
 						log.info("Couldn't find coarse location for " + record.getAccession());
 					}
@@ -298,6 +436,8 @@ public class GeonameDisjoiner {
 				invalidRecords.add(new InvalidRecords(higherAdminRecords,HIGHER_ADMIN_LEVEL+ adminCodeToCommonName(commonLevel) +" level"));
 			}
 			DisjoinerResponse disjoinerResponse = new DisjoinerResponse(records, invalidRecords, distinctLocations, false);
+			disjoinerResponse.setDisjoinLevel(commonLevel);
+			disjoinerResponse.setOriginalRecords(allRecords);
 			if(distinctLocations.size() > MAX_DISTINCT_LOCATIONS) {
 				if(!commonLevel.equals(DEFAULT_DISJOIN_LEVEL)) {
 					distinctLocations.removeAll(locations);
@@ -327,38 +467,15 @@ public class GeonameDisjoiner {
 	/*
 	 * For a given location get the ancestor with level equal to the commonLevel
 	 */
-	private Location fineToCoarseLocation(Set<Long> ancestors, String commonLevel) {
-		Location location = null;
-		 for(Long ancestor: ancestors) {
-			 try {
-				location = hierarchyIndexSearcher.findGeonameLocation(String.valueOf(ancestor));
-				if(location!=null) {
-					String level = location.getGeonameType();
-					if(level!=null && level.equalsIgnoreCase(commonLevel)) {
-						break;
-					}
-				}
-			} catch (LuceneSearcherException e) {
-				location = null;
-			}
-		 }
-		 return location;
-	}
-	
-	private Set<Location> addToLocations(Set<Location> locations, Location location){
-		boolean exists = false;
-		for(Location loc : locations) {
-			if(String.valueOf(loc.getGeonameID()).equals(String.valueOf(location.getGeonameID()))) {
-				exists = true;
-				break;
-			}
-		}
-		if(!exists) {
-			locations.add(location);
+	private Location fineToCoarseLocation(Location location, String commonLevel) {
+		try {
+			return hierarchyIndexSearcher.findAncestorOfType(location.getGeonameID(), commonLevel);
+		} catch (LuceneSearcherException e) {
+			log.warning("Could not resolve "+commonLevel+" ancestor of "+location.getGeonameID()+": "+e.getMessage());
+			return null;
 		}
-		return locations;
 	}
-
+	
 	private void errorTooFewLocations(Set<Location> distinctLocations) throws DisjoinerException{
 		String userErr = "Too few distinct locations (need at least 2): " + distinctLocations.size();
 		if (distinctLocations.size() == 1) {
@@ -524,6 +641,7 @@ public class GeonameDisjoiner {
 	
 	/**
 	 * Checks if the suspected suspectedAncestor is actually an ancestor to the given Geoname location
+	 * Uses the preloaded GeonameAncestry when available, otherwise the record's ancestors map
 	 * @param map of location and it's ancestors
 	 * @param suspectedAncestor
 	 * @param location
@@ -531,6 +649,12 @@ public class GeonameDisjoiner {
 	 * @throws DisjoinerException 
 	 */
 	private boolean isAncestor(Map<String,Set<Long>> ancestors, Location suspectedAncestor, Location location) throws DisjoinerException {
+		if (ancestry != null && location.getGeonameID() != null && ancestry.contains(location.getGeonameID())) {
+			if (location.getGeonameID().equals(suspectedAncestor.getGeonameID())) {
+				return true;
+			}
+			return suspectedAncestor.getGeonameID() != null && ancestry.isAncestor(suspectedAncestor.getGeonameID(), location.getGeonameID());
+		}
 	    Set<Long> locationAncestors = ancestors.get(location.getAccession());
 	    if (locationAncestors == null) {
 	    	throw new DisjoinerException("Null Ancestors for location ID:\t"+location.getGeonameID(), "Error Disjoining Locations");
@@ -0,0 +1,96 @@
+package edu.asu.zoophy.rest.pipeline.utils;
+
+import edu.asu.zoophy.rest.genbank.Location;
+
+/**
+ * Interns Geoname Locations, handing out one shared Location per Geoname ID, so records in the same place share one instance instead of a copy each.
+ * Canonical Locations are ordinary Locations shared between records, so changing one changes it for every record that holds it.
+ * They are kept in an open addressing table keyed by the primitive Geoname ID, and interning is safe from concurrent threads.
+ * @author devdemetri
+ */
+public class LocationRegistry {
+
+	private final static int INITIAL_CAPACITY = 64;
+
+	private long[] keys;
+	private Location[] values;
+	private int size;
+
+	public LocationRegistry() {
+		keys = new long[INITIAL_CAPACITY];
+		values = new Location[INITIAL_CAPACITY];
+		size = 0;
+	}
+
+	/**
+	 * Finds the canonical Location for the given Location's Geoname ID, registering the given Location as canonical if there is none yet
+	 * @param location - Location to intern
+	 * @return canonical Location with the same Geoname ID, or the given Location if it is null or has no Geoname ID
+	 */
+	public synchronized Location intern(Location location) {
+		if (location == null || location.getGeonameID() == null) {
+			return location;
+		}
+		long geonameId = location.getGeonameID();
+		int slot = slotOf(geonameId);
+		if (values[slot] != null) {
+			return values[slot];
+		}
+		keys[slot] = geonameId;
+		values[slot] = location;
+		size++;
+		if (size * 2 > keys.length) {
+			resize();
+		}
+		return location;
+	}
+
+	/**
+	 * @param geonameId - Geoname ID
+	 * @return canonical Location for the ID, or null if none was registered
+	 */
+	public synchronized Location get(long geonameId) {
+		return values[slotOf(geonameId)];
+	}
+
+	/**
+	 * @return number of canonical Locations
+	 */
+	public synchronized int size() {
+		return size;
+	}
+
+	/**
+	 * Linear probing from the mixed hash of the ID
+	 * @param geonameId - Geoname ID
+	 * @return slot holding the ID, or the empty slot it belongs in
+	 */
+	private int slotOf(long geonameId) {
+		int mask = keys.length - 1;
+		int slot = mix(geonameId) & mask;
+		while (values[slot] != null && keys[slot] != geonameId) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	private static int mix(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32));
+	}
+
+	private void resize() {
+		long[] oldKeys = keys;
+		Location[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new Location[oldValues.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				int slot = slotOf(oldKeys[i]);
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+}
@@ -13,5 +13,6 @@ public enum Parameter {
 	RECORD_ID,
 	LOCATION,
 	RAW_SEQUENCE,
-	DATE
+	DATE,
+	SEARCH_CURSOR
 }
@@ -30,8 +30,10 @@ public class SecurityHelper {
 	public static final String FASTA_MET_DATE_REGEX = "^(" + FASTA_MET_DECIMAL_DATE_REGEX + "|" + FASTA_MET_MMDDYYYY_DATE_REGEX + "|" + FASTA_MET_HUMAN_DATE_REGEX + ")$";
 	public static final String FASTA_MET_GEOID_REGEX = "(\\d){4,10}";
 	public static final String FASTA_MET_LOCNAME_REGEX = "([\\D-.,'’ ]){1,100}";
-	public static final String FASTA_MET_LOC_REGEX = "^(" + FASTA_MET_GEOID_REGEX + "|" + FASTA_MET_LOCNAME_REGEX + ")$";
+	public static final String FASTA_MET_COORDINATES_REGEX = "(-?\\d{1,2}(\\.\\d{1,10})? ?, ?-?\\d{1,3}(\\.\\d{1,10})?)";
+	public static final String FASTA_MET_LOC_REGEX = "^(" + FASTA_MET_GEOID_REGEX + "|" + FASTA_MET_LOCNAME_REGEX + "|" + FASTA_MET_COORDINATES_REGEX + ")$";
 	public static final String FASTA_MET_RSEQ_REGEX = "^([ACGTURYSWKMBDHVNacgturyswkmbdhvn-]){1,30000}$";
+	public static final String SEARCH_CURSOR_REGEX = "^[A-Za-z0-9_-]{1,64}+$";
 	
 	/**
 	 * Verifies parameters via regular expression
@@ -72,6 +74,9 @@ public class SecurityHelper {
 			case DATE:
 				regex = Pattern.compile(FASTA_MET_DATE_REGEX);
 				break;
+			case SEARCH_CURSOR:
+				regex = Pattern.compile(SEARCH_CURSOR_REGEX);
+				break;
 			default:
 				return false;
 		}
@@ -0,0 +1,41 @@
+package edu.asu.zoophy.rest.database;
+
+import static org.junit.Assert.*;
+
+import java.sql.SQLException;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.asu.zoophy.rest.genbank.PossibleLocation;
+
+/**
+ * Test cases for FullGenBankRecordRowMapper
+ * @author devdemetri
+ */
+public class FullGenBankRecordRowMapperTest {
+
+	@Test
+	public void testParsePossibleLocations() throws SQLException {
+		List<PossibleLocation> locations = FullGenBankRecordRowMapper.parsePossibleLocations("[{\"Geoname_ID\" : 5308655, \"Location\" : \"Phoenix\", \"Latitude\" : 33.44838, \"Longitude\" : -112.07404, \"probability\" : 0.75}, "
+				+ "{\"Geoname_ID\" : 5551752, \"Location\" : null, \"Latitude\" : null, \"Longitude\" : 34.5, \"probability\" : 0.25}]");
+		assertEquals(2, locations.size());
+		PossibleLocation phoenix = locations.get(0);
+		assertEquals(Long.valueOf(5308655L), phoenix.getGeonameID());
+		assertEquals("Phoenix", phoenix.getLocation());
+		assertEquals(33.44838, phoenix.getLatitude(), 0.0);
+		assertEquals(-112.07404, phoenix.getLongitude(), 0.0);
+		assertEquals(0.75, phoenix.getProbability(), 0.0);
+		PossibleLocation arizona = locations.get(1);
+		assertEquals(Long.valueOf(5551752L), arizona.getGeonameID());
+		assertNull(arizona.getLocation());
+		assertEquals(0.0, arizona.getLatitude(), 0.0);
+		assertTrue(FullGenBankRecordRowMapper.parsePossibleLocations(null).isEmpty());
+	}
+
+	@Test(expected = SQLException.class)
+	public void testMalformedPossibleLocations() throws SQLException {
+		FullGenBankRecordRowMapper.parsePossibleLocations("[{\"Geoname_ID\" : ");
+	}
+
+}
@@ -0,0 +1,91 @@
+package edu.asu.zoophy.rest.database;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+import edu.asu.zoophy.rest.genbank.Sequence;
+
+/**
+ * Test cases for GenBankRecordCache
+ * @author devdemetri
+ */
+public class GenBankRecordCacheTest {
+
+	private static GenBankRecord makeRecord(String accession, int sequenceLength) {
+		GenBankRecord record = new GenBankRecord();
+		record.setAccession(accession);
+		Sequence sequence = new Sequence();
+		StringBuilder rawSequence = new StringBuilder(sequenceLength);
+		for (int i = 0; i < sequenceLength; i++) {
+			rawSequence.append("acgt".charAt(i % 4));
+		}
+		sequence.setRawSequence(rawSequence.toString());
+		record.setSequence(sequence);
+		return record;
+	}
+
+	@Test
+	public void testReadThrough() {
+		GenBankRecordCache cache = new GenBankRecordCache(1024 * 1024, 60000);
+		assertNull(cache.get("F:CY187660"));
+		GenBankRecord record = makeRecord("CY187660", 1700);
+		cache.put("F:CY187660", record, GenBankRecordCache.weigh(record));
+		assertSame(record, cache.get("F:CY187660"));
+		assertNull(cache.get("L:CY187660"));
+		cache.putNotFound("F:MISSING1");
+		assertSame(GenBankRecordCache.NOT_FOUND, cache.get("F:MISSING1"));
+		assertEquals(2, cache.size());
+		assertEquals(2, cache.getHits());
+		assertEquals(1, cache.getNotFoundHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testEvictionBySequenceWeight() {
+		GenBankRecord longRecord = makeRecord("CY187660", 10000);
+		assertTrue(GenBankRecordCache.weigh(longRecord) > 20000);
+		assertTrue(GenBankRecordCache.weigh(makeRecord("CY187661", 100)) < 1000);
+		GenBankRecordCache cache = new GenBankRecordCache(50000, 60000);
+		cache.put("F:CY187660", longRecord, GenBankRecordCache.weigh(longRecord));
+		for (int i = 0; i < 20; i++) {
+			GenBankRecord record = makeRecord("CY1877"+i, 100);
+			cache.put("F:"+record.getAccession(), record, GenBankRecordCache.weigh(record));
+		}
+		assertNotNull(cache.get("F:CY187660"));
+		GenBankRecord secondLong = makeRecord("CY187690", 10000);
+		cache.put("F:CY187690", secondLong, GenBankRecordCache.weigh(secondLong));
+		assertTrue(cache.getWeight() <= 50000);
+		assertTrue(cache.getEvictions() > 0);
+		assertNotNull(cache.get("F:CY187660"));
+		assertNotNull(cache.get("F:CY187690"));
+		assertNull(cache.get("F:CY18770"));
+		GenBankRecord tooLong = makeRecord("CY187699", 30000);
+		cache.put("F:CY187699", tooLong, GenBankRecordCache.weigh(tooLong));
+		assertNull(cache.get("F:CY187699"));
+	}
+
+	@Test
+	public void testExpiration() throws InterruptedException {
+		GenBankRecordCache cache = new GenBankRecordCache(1024 * 1024, 20);
+		cache.put("O:CY187660", new Object(), 0);
+		cache.putNotFound("O:MISSING1");
+		assertNotNull(cache.get("O:CY187660"));
+		Thread.sleep(40);
+		assertNull(cache.get("O:CY187660"));
+		assertNull(cache.get("O:MISSING1"));
+		assertEquals(2, cache.getExpirations());
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+	}
+
+	@Test
+	public void testDisabled() {
+		GenBankRecordCache cache = new GenBankRecordCache(0, 60000);
+		cache.putNotFound("F:MISSING1");
+		assertNull(cache.get("F:MISSING1"));
+		assertEquals(0, cache.size());
+	}
+
+}
@@ -0,0 +1,79 @@
+package edu.asu.zoophy.rest.database;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+
+/**
+ * Test cases for LazySequence
+ * @author devdemetri
+ */
+public class LazySequenceTest {
+
+	private static class CountingLoader implements LazySequence.Loader {
+		private int loads = 0;
+
+		@Override
+		public String loadRawSequence(String accession) throws DaoException {
+			loads++;
+			if (accession.equals("BROKEN")) {
+				throw new DaoException("connection closed");
+			}
+			return "acgt"+accession;
+		}
+	}
+
+	@Test
+	public void testLoadsOnFirstRead() {
+		CountingLoader loader = new CountingLoader();
+		LazySequence sequence = new LazySequence(loader);
+		sequence.setAccession("CY187660");
+		sequence.setSegmentLength(1701);
+		assertFalse(sequence.rawSequenceLoaded());
+		LazySequence copy = sequence.copy();
+		assertEquals(0, loader.loads);
+		assertEquals("acgtCY187660", sequence.getRawSequence());
+		assertEquals("acgtCY187660", sequence.getRawSequence());
+		assertEquals(1, loader.loads);
+		assertTrue(sequence.rawSequenceLoaded());
+		assertFalse(copy.rawSequenceLoaded());
+		assertEquals(Integer.valueOf(1701), copy.getSegmentLength());
+		assertEquals("acgtCY187660", sequence.copy().getRawSequence());
+		assertEquals(1, loader.loads);
+	}
+
+	@Test
+	public void testBulkLoadedSequenceSkipsLoader() {
+		CountingLoader loader = new CountingLoader();
+		LazySequence sequence = new LazySequence(loader);
+		sequence.setAccession("CY187660");
+		sequence.setRawSequence(null);
+		assertTrue(sequence.rawSequenceLoaded());
+		assertNull(sequence.getRawSequence());
+		assertEquals(0, loader.loads);
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testLoadFailure() {
+		LazySequence sequence = new LazySequence(new CountingLoader());
+		sequence.setAccession("BROKEN");
+		sequence.getRawSequence();
+	}
+
+	@Test
+	public void testCacheWeightDoesNotLoad() {
+		CountingLoader loader = new CountingLoader();
+		LazySequence sequence = new LazySequence(loader);
+		sequence.setAccession("CY187660");
+		GenBankRecord record = new GenBankRecord();
+		record.setAccession("CY187660");
+		record.setSequence(sequence);
+		long unloadedWeight = GenBankRecordCache.weigh(record);
+		assertEquals(0, loader.loads);
+		sequence.getRawSequence();
+		assertEquals(unloadedWeight + "acgtCY187660".length() * 2, GenBankRecordCache.weigh(record));
+	}
+
+}
@@ -0,0 +1,106 @@
+package edu.asu.zoophy.rest.database;
+
+import static org.junit.Assert.*;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+import edu.asu.zoophy.rest.genbank.Gene;
+import edu.asu.zoophy.rest.genbank.Host;
+import edu.asu.zoophy.rest.genbank.Location;
+import edu.asu.zoophy.rest.genbank.PossibleLocation;
+import edu.asu.zoophy.rest.genbank.Publication;
+import edu.asu.zoophy.rest.genbank.Sequence;
+
+/**
+ * Test cases for copying cached GenBankRecords in ZooPhyDAO
+ * @author devdemetri
+ */
+public class ZooPhyDAOCopyTest {
+
+	private static GenBankRecord makeRecord() {
+		GenBankRecord record = new GenBankRecord();
+		record.setAccession("CY187660");
+		Sequence sequence = new Sequence();
+		sequence.setAccession("CY187660");
+		sequence.setRawSequence("acgtacgt");
+		sequence.setSegmentLength(8);
+		record.setSequence(sequence);
+		Host host = new Host();
+		host.setName("human");
+		host.setTaxon(9606);
+		record.setHost(host);
+		Location location = new Location();
+		location.setGeonameID(5308655L);
+		location.setLocation("Phoenix");
+		location.setState("Arizona");
+		location.setCountry("United States");
+		record.setGeonameLocation(location);
+		Publication publication = new Publication();
+		publication.setPubMedID(12345);
+		publication.setTitle("Title");
+		record.setPublication(publication);
+		Gene gene = new Gene();
+		gene.setName("HA");
+		record.getGenes().add(gene);
+		PossibleLocation possibleLocation = new PossibleLocation();
+		possibleLocation.setGeonameID(5308655L);
+		possibleLocation.setProbability(1.0);
+		record.getPossibleLocations().add(possibleLocation);
+		return record;
+	}
+
+	@Test
+	public void testCopyIsDeep() {
+		GenBankRecord record = makeRecord();
+		GenBankRecord copy = ZooPhyDAO.copyOf(record);
+		assertNotSame(record.getSequence(), copy.getSequence());
+		assertNotSame(record.getHost(), copy.getHost());
+		assertNotSame(record.getGeonameLocation(), copy.getGeonameLocation());
+		assertNotSame(record.getPublication(), copy.getPublication());
+		assertNotSame(record.getGenes().get(0), copy.getGenes().get(0));
+		assertNotSame(record.getPossibleLocations().get(0), copy.getPossibleLocations().get(0));
+		assertEquals("acgtacgt", copy.getSequence().getRawSequence());
+		assertEquals(Integer.valueOf(9606), copy.getHost().getTaxon());
+		assertEquals("Arizona", copy.getGeonameLocation().getState());
+		assertEquals(Integer.valueOf(12345), copy.getPublication().getPubMedID());
+		assertEquals("HA", copy.getGenes().get(0).getName());
+		assertEquals(Double.valueOf(1.0), copy.getPossibleLocations().get(0).getProbability());
+		copy.getGeonameLocation().setState("Unknown");
+		copy.getHost().setName("swine");
+		copy.getSequence().setRawSequence("");
+		assertEquals("Arizona", record.getGeonameLocation().getState());
+		assertEquals("human", record.getHost().getName());
+		assertEquals("acgtacgt", record.getSequence().getRawSequence());
+	}
+
+	@Test
+	public void testCopyKeepsMissingParts() {
+		GenBankRecord record = new GenBankRecord();
+		record.setAccession("CY187660");
+		record.setGenes(null);
+		record.setPossibleLocations(null);
+		GenBankRecord copy = ZooPhyDAO.copyOf(record);
+		assertEquals("CY187660", copy.getAccession());
+		assertNull(copy.getSequence());
+		assertNull(copy.getHost());
+		assertNull(copy.getGeonameLocation());
+		assertNull(copy.getPublication());
+		assertNull(copy.getGenes());
+		assertNull(copy.getPossibleLocations());
+	}
+
+	@Test
+	public void testCopyPossibleLocations() {
+		List<PossibleLocation> possibleLocations = makeRecord().getPossibleLocations();
+		List<PossibleLocation> copies = ZooPhyDAO.copyOf(possibleLocations);
+		assertEquals(1, copies.size());
+		assertNotSame(possibleLocations.get(0), copies.get(0));
+		assertEquals(Long.valueOf(5308655L), copies.get(0).getGeonameID());
+		copies.get(0).setProbability(0.5);
+		assertEquals(Double.valueOf(1.0), possibleLocations.get(0).getProbability());
+	}
+
+}
@@ -31,4 +31,26 @@ public class LocationTest {
 		assertEquals(-157.917, loc.getLongitude().doubleValue(), 0.0);
 	}
 
+	@Test
+	public void testEquals() {
+		Location loc = new Location();
+		loc.setGeonameID(5855739L);
+		loc.setLocation("Home");
+		Location sameId = new Location();
+		sameId.setGeonameID(5855739L);
+		Location otherId = new Location();
+		otherId.setGeonameID(5551752L);
+		assertEquals(loc, sameId);
+		assertEquals(loc.hashCode(), sameId.hashCode());
+		assertFalse(loc.equals(otherId));
+		Location noId = new Location();
+		noId.setLocation("Home");
+		Location otherNoId = new Location();
+		otherNoId.setLocation("Home");
+		assertEquals(noId, noId);
+		assertFalse(noId.equals(otherNoId));
+		assertFalse(noId.equals(loc));
+		assertFalse(loc.equals(noId));
+	}
+
 }
@@ -1,12 +1,21 @@
 package edu.asu.zoophy.rest.index;
 
+import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
+import java.util.EnumSet;
+
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StringField;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+
 @RunWith(SpringRunner.class)
 @SpringBootTest
 public class DocumentMapperTest {
@@ -17,5 +26,21 @@ public class DocumentMapperTest {
 		assertNotNull(mapper);
 		// the main point of this class is the static method, which gets tested primarily in Lucene Searcher. Will revisit this later.
 	}
+	
+	@Test
+	public void testProjectionLeavesListsNull() throws LuceneSearcherException {
+		Document document = new Document();
+		document.add(new StringField("Accession", "CY187660", Field.Store.YES));
+		document.add(new StringField("Country", "United States", Field.Store.YES));
+		document.add(new StringField("Gene", "HA", Field.Store.YES));
+		GenBankRecord record = DocumentMapper.mapRecord(document, EnumSet.of(RecordField.ACCESSION, RecordField.COUNTRY));
+		assertEquals("CY187660", record.getAccession());
+		assertEquals("United States", record.getGeonameLocation().getCountry());
+		assertNull(record.getGenes());
+		assertNull(record.getPossibleLocations());
+		record = DocumentMapper.mapRecord(document, EnumSet.of(RecordField.ACCESSION, RecordField.GENES));
+		assertEquals("HA", record.getGenes().get(0).getName());
+		assertNull(record.getPossibleLocations());
+	}
 
 }
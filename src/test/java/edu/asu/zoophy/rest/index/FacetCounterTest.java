@@ -0,0 +1,94 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Map;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.SortedSetDocValuesField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.TermQuery;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class FacetCounterTest {
+
+	private Directory directory;
+	private DirectoryReader reader;
+
+	private static void addRecord(IndexWriter writer, String organism, String country, String date, String... genes) throws IOException {
+		Document document = new Document();
+		document.add(new TextField("Organism", organism, Field.Store.YES));
+		document.add(new StringField("Country", country, Field.Store.YES));
+		document.add(new StringField("NormalizedDate", date, Field.Store.YES));
+		for (String gene : genes) {
+			document.add(new StringField("Gene", gene, Field.Store.YES));
+			document.add(new SortedSetDocValuesField("Gene", new BytesRef(gene)));
+		}
+		writer.addDocument(document);
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		directory = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+		addRecord(writer, "Influenza A virus", "Mexico", "2009-04-15", "HA", "NA");
+		addRecord(writer, "Influenza A virus", "United States", "2009-11-02", "HA");
+		writer.commit();
+		addRecord(writer, "Influenza B virus", "Mexico", "2012-01-20", "PB2", "PB2");
+		addRecord(writer, "West Nile virus", "United States", "unknown", "E");
+		writer.close();
+		reader = DirectoryReader.open(directory);
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		reader.close();
+		directory.close();
+	}
+
+	@Test
+	public void testStoredValuesCountWholeValues() throws IOException, LuceneSearcherException {
+		FacetCounts counts = FacetCounter.count(new IndexSearcher(reader), new MatchAllDocsQuery(), Arrays.asList(Facet.ORGANISM, Facet.COUNTRY, Facet.YEAR), 10);
+		assertEquals(4, counts.getTotalHits());
+		Map<String, Integer> organisms = counts.getFacets().get("organism");
+		assertEquals(3, organisms.size());
+		assertEquals(Integer.valueOf(2), organisms.get("Influenza A virus"));
+		assertNull(organisms.get("influenza"));
+		assertEquals(Integer.valueOf(2), counts.getFacets().get("country").get("Mexico"));
+		Map<String, Integer> years = counts.getFacets().get("year");
+		assertEquals(Integer.valueOf(2), years.get("2009"));
+		assertEquals(2, years.size());
+	}
+
+	@Test
+	public void testDocValuesOnlyCountHits() throws IOException, LuceneSearcherException {
+		FacetCounts counts = FacetCounter.count(new IndexSearcher(reader), new TermQuery(new Term("Country", "Mexico")), Arrays.asList(Facet.GENE), 10);
+		assertEquals(2, counts.getTotalHits());
+		Map<String, Integer> genes = counts.getFacets().get("gene");
+		assertEquals(Integer.valueOf(1), genes.get("HA"));
+		assertEquals(Integer.valueOf(1), genes.get("PB2"));
+		assertNull(genes.get("E"));
+	}
+
+	@Test(expected = LuceneSearcherException.class)
+	public void testMissingField() throws IOException, LuceneSearcherException {
+		FacetCounter.count(new IndexSearcher(reader), new MatchAllDocsQuery(), Arrays.asList(Facet.HOST), 10);
+	}
+
+}
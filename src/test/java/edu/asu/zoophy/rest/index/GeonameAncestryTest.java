@@ -0,0 +1,78 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashSet;
+
+import org.apache.lucene.analysis.core.KeywordAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+public class GeonameAncestryTest {
+
+	@Test
+	public void testBuild() {
+		long[] ids = {5308655L, 6252001L, 5551752L};
+		String[] types = {"PPLA", "PCLI", "ADM1"};
+		int[] starts = {0, 3, 4};
+		int[] counts = {3, 1, 2};
+		long[] ancestors = {6252001L, 5551752L, 5308655L, 6252001L, 6252001L, 5551752L};
+		GeonameAncestry ancestry = GeonameAncestry.build(ids, types, starts, counts, ancestors);
+		assertEquals(3, ancestry.size());
+		assertTrue(ancestry.isAncestor(5551752L, 5308655L));
+		assertTrue(ancestry.isAncestor(6252001L, 5551752L));
+		assertFalse(ancestry.isAncestor(5308655L, 5551752L));
+		assertFalse(ancestry.isAncestor(5308655L, 5308655L));
+		assertFalse(ancestry.isAncestor(6252001L, 1L));
+		assertEquals(2, ancestry.ancestorCount(5551752L));
+		assertEquals(-1, ancestry.ancestorCount(1L));
+		assertEquals(5551752L, ancestry.ancestorAt(5551752L, 1));
+		assertEquals(new HashSet<Long>(Arrays.asList(6252001L, 5551752L, 5308655L)), ancestry.getAncestors(5308655L));
+		assertTrue(ancestry.getAncestors(1L).isEmpty());
+		assertEquals("ADM1", ancestry.typeOf(5551752L));
+		assertNull(ancestry.typeOf(1L));
+		assertEquals(5551752L, ancestry.ancestorOfType(5308655L, "adm1"));
+		assertEquals(6252001L, ancestry.ancestorOfType(5308655L, "PCLI"));
+		assertEquals(-1L, ancestry.ancestorOfType(5308655L, "ADM2"));
+		assertEquals(-1L, ancestry.ancestorOfType(1L, "ADM1"));
+	}
+
+	@Test
+	public void testLoad() throws IOException {
+		Directory directory = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new KeywordAnalyzer()));
+		writer.addDocument(geoname("5551752", "ADM1", "6252001, 5551752"));
+		writer.addDocument(geoname("5308655", "PPLA", "6252001, 5551752, 5308655"));
+		writer.close();
+		DirectoryReader reader = DirectoryReader.open(directory);
+		GeonameAncestry ancestry = GeonameAncestry.load(new IndexSearcher(reader), "GeonameId", "Code", "AncestorsIds");
+		assertEquals(2, ancestry.size());
+		assertTrue(ancestry.contains(5308655L));
+		assertTrue(ancestry.isAncestor(5551752L, 5308655L));
+		assertEquals(3, ancestry.ancestorCount(5308655L));
+		assertEquals("PPLA", ancestry.typeOf(5308655L));
+		assertEquals(5551752L, ancestry.ancestorOfType(5308655L, "ADM1"));
+		reader.close();
+		directory.close();
+	}
+
+	private static Document geoname(String id, String type, String ancestors) {
+		Document document = new Document();
+		document.add(new StringField("GeonameId", id, Field.Store.YES));
+		document.add(new StringField("Code", type, Field.Store.YES));
+		document.add(new StoredField("AncestorsIds", ancestors));
+		return document;
+	}
+
+}
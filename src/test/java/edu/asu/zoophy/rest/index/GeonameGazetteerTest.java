@@ -0,0 +1,48 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class GeonameGazetteerTest {
+
+	@Test
+	public void testKeysFor() {
+		assertEquals(Arrays.asList("phoenix", "phoenix,maricopa county", "phoenix,arizona", "phoenix,maricopa county,arizona"),
+				GeonameGazetteer.keysFor("Phoenix", "Phoenix, Maricopa County (historical), Arizona"));
+		assertEquals(Arrays.asList("arizona"), GeonameGazetteer.keysFor(" Arizona ", null));
+	}
+
+	@Test
+	public void testResolve() throws IOException {
+		Map<String, Long> entries = new HashMap<String, Long>();
+		putAll(entries, 5308655L, GeonameGazetteer.keysFor("Phoenix", "Phoenix, Maricopa, Arizona"));
+		putAll(entries, 5735238L, GeonameGazetteer.keysFor("Phoenix", "Phoenix, Jackson, Oregon"));
+		putAll(entries, 5551752L, GeonameGazetteer.keysFor("Arizona", "Arizona, United States"));
+		GeonameGazetteer gazetteer = GeonameGazetteer.build(entries);
+		assertEquals(Long.valueOf(5308655L), gazetteer.resolve("Phoenix, Arizona"));
+		assertEquals(Long.valueOf(5735238L), gazetteer.resolve("phoenix ,OREGON"));
+		assertEquals(Long.valueOf(5551752L), gazetteer.resolve("Arizona"));
+		assertEquals(Long.valueOf(5551752L), gazetteer.resolve("Arizo"));
+		assertNull(gazetteer.resolve("Phoenix"));
+		assertNull(gazetteer.resolve("Phoe"));
+		assertNull(gazetteer.resolve("Tempe"));
+		assertEquals(6, gazetteer.getByPrefix("phoenix,", 10).size());
+		assertEquals(2, gazetteer.getByPrefix("phoenix,", 2).size());
+	}
+
+	private static void putAll(Map<String, Long> entries, Long geonameId, Iterable<String> keys) {
+		for (String key : keys) {
+			Long previous = entries.put(key, geonameId);
+			if (previous != null && !previous.equals(geonameId)) {
+				entries.put(key, 0L);
+			}
+		}
+	}
+
+}
@@ -0,0 +1,59 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import edu.asu.zoophy.rest.genbank.Location;
+
+public class GeonameLocationCacheTest {
+
+	@Test
+	public void testNormalizedHitReturnsCopy() {
+		GeonameLocationCache cache = new GeonameLocationCache(10);
+		cache.put("Phoenix, Arizona", 1, location(5308655L, "Phoenix"));
+		Location cached = cache.get("  phoenix ,ARIZONA ", 1);
+		assertNotNull(cached);
+		assertEquals(Long.valueOf(5308655L), cached.getGeonameID());
+		cached.setLocation("changed");
+		assertEquals("Phoenix", cache.get("Phoenix, Arizona", 1).getLocation());
+		assertEquals(2, cache.getHits());
+	}
+
+	@Test
+	public void testNegativeCaching() {
+		GeonameLocationCache cache = new GeonameLocationCache(10);
+		assertNull(cache.get("Nowhere", 1));
+		cache.put("Nowhere", 1, null);
+		assertSame(GeonameLocationCache.MISSING, cache.get("nowhere", 1));
+	}
+
+	@Test
+	public void testGenerationInvalidation() {
+		GeonameLocationCache cache = new GeonameLocationCache(10);
+		cache.put("5551752", 1, location(5551752L, "Arizona"));
+		assertNull(cache.get("5551752", 2));
+		cache.put("5551752", 1, location(5551752L, "Arizona"));
+		assertEquals(0, cache.size());
+	}
+
+	@Test
+	public void testEviction() {
+		GeonameLocationCache cache = new GeonameLocationCache(2);
+		cache.put("1111", 1, location(1111L, "a"));
+		cache.put("2222", 1, location(2222L, "b"));
+		cache.get("1111", 1);
+		cache.put("3333", 1, location(3333L, "c"));
+		assertNotNull(cache.get("1111", 1));
+		assertNull(cache.get("2222", 1));
+		assertEquals(2, cache.size());
+	}
+
+	private static Location location(Long geonameId, String name) {
+		Location location = new Location();
+		location.setGeonameID(geonameId);
+		location.setLocation(name);
+		return location;
+	}
+
+}
@@ -0,0 +1,81 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+public class GeonameSpatialIndexTest {
+
+	@Test
+	public void testNearest() {
+		GeonameSpatialIndex spatialIndex = GeonameSpatialIndex.build(new long[] {5551752L, 4831725L, 6252001L, 2017370L, 2077456L},
+				new double[] {34.5, 41.66, 39.76, 60.0, -25.0}, new double[] {-111.5, -72.66, -98.5, 100.0, 135.0});
+		assertEquals(5, spatialIndex.size());
+		assertEquals(5551752L, spatialIndex.nearest(33.45, -112.07));
+		assertEquals(4831725L, spatialIndex.nearest(41.3, -72.9));
+		assertEquals(6252001L, spatialIndex.nearest(45.0, -100.0));
+		assertEquals(2017370L, spatialIndex.nearest(65.0, -179.9));
+		assertEquals(2077456L, spatialIndex.nearest(-33.86, 151.2));
+		assertEquals(-1L, GeonameSpatialIndex.build(new long[0], new double[0], new double[0]).nearest(0, 0));
+	}
+
+	@Test
+	public void testNearestMatchesBruteForce() {
+		Random random = new Random(42);
+		int size = 2000;
+		long[] ids = new long[size];
+		double[] latitudes = new double[size];
+		double[] longitudes = new double[size];
+		for (int i = 0; i < size; i++) {
+			ids[i] = i;
+			latitudes[i] = random.nextDouble() * 180 - 90;
+			longitudes[i] = random.nextDouble() * 360 - 180;
+		}
+		GeonameSpatialIndex spatialIndex = GeonameSpatialIndex.build(ids.clone(), latitudes, longitudes);
+		for (int q = 0; q < 500; q++) {
+			double latitude = random.nextDouble() * 180 - 90;
+			double longitude = random.nextDouble() * 360 - 180;
+			long expected = -1;
+			double best = Double.MAX_VALUE;
+			for (int i = 0; i < size; i++) {
+				double distance = greatCircle(latitude, longitude, latitudes[i], longitudes[i]);
+				if (distance < best) {
+					best = distance;
+					expected = ids[i];
+				}
+			}
+			assertEquals(expected, spatialIndex.nearest(latitude, longitude));
+		}
+	}
+
+	@Test
+	public void testParseCoordinates() {
+		assertArrayEquals(new double[] {33.45, -112.07}, GeonameSpatialIndex.parseCoordinates("33.45, -112.07"), 0.0);
+		assertArrayEquals(new double[] {-90, 180}, GeonameSpatialIndex.parseCoordinates("-90,180"), 0.0);
+		assertNull(GeonameSpatialIndex.parseCoordinates("91,0"));
+		assertNull(GeonameSpatialIndex.parseCoordinates("0,181"));
+		assertNull(GeonameSpatialIndex.parseCoordinates("Phoenix, Arizona"));
+		assertNull(GeonameSpatialIndex.parseCoordinates("5308655"));
+		assertNull(GeonameSpatialIndex.parseCoordinates(null));
+	}
+
+	@Test
+	public void testIsAdministrative() {
+		assertTrue(GeonameSpatialIndex.isAdministrative("ADM2"));
+		assertTrue(GeonameSpatialIndex.isAdministrative("PCLI"));
+		assertFalse(GeonameSpatialIndex.isAdministrative("PPLA"));
+		assertFalse(GeonameSpatialIndex.isAdministrative(null));
+	}
+
+	private static double greatCircle(double latitude1, double longitude1, double latitude2, double longitude2) {
+		double lat1 = Math.toRadians(latitude1);
+		double lat2 = Math.toRadians(latitude2);
+		double deltaLat = lat2 - lat1;
+		double deltaLon = Math.toRadians(longitude2 - longitude1);
+		double a = Math.sin(deltaLat / 2) * Math.sin(deltaLat / 2) + Math.cos(lat1) * Math.cos(lat2) * Math.sin(deltaLon / 2) * Math.sin(deltaLon / 2);
+		return 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+	}
+
+}
@@ -0,0 +1,83 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.SortedNumericDocValuesField;
+import org.apache.lucene.document.TextField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.RAMDirectory;
+import org.junit.Test;
+
+public class IndexWarmerTest {
+
+	@Test
+	public void testReadQueries() throws IOException {
+		File queryFile = File.createTempFile("warmup", ".txt");
+		queryFile.deleteOnExit();
+		Files.write(queryFile.toPath(), Arrays.asList("# recorded queries", "", " OrganismID:197911 ", "Country:mexico"), StandardCharsets.UTF_8);
+		List<String> queries = IndexWarmer.readQueries(queryFile.getPath());
+		assertEquals(Arrays.asList("OrganismID:197911", "Country:mexico"), queries);
+		assertTrue(IndexWarmer.readQueries("").isEmpty());
+		assertTrue(IndexWarmer.readQueries(queryFile.getPath()+".missing").isEmpty());
+	}
+
+	@Test
+	public void testNewSearcher() throws IOException {
+		Directory directory = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+		Document document = new Document();
+		document.add(new TextField("Accession", "CY187610", Field.Store.YES));
+		document.add(new NumericDocValuesField("SegmentLength", 1701));
+		writer.addDocument(document);
+		writer.close();
+		IndexWarmer warmer = new IndexWarmer("Test", true, Arrays.asList("CY187610", "bad:("), "Accession", new StandardAnalyzer());
+		DirectoryReader reader = DirectoryReader.open(directory);
+		IndexSearcher indexSearcher = warmer.newSearcher(reader, null);
+		assertSame(reader, indexSearcher.getIndexReader());
+		reader.close();
+		directory.close();
+	}
+
+	@Test
+	public void testWarmNewLeaves() throws IOException {
+		Directory directory = new RAMDirectory();
+		IndexWriter writer = new IndexWriter(directory, new IndexWriterConfig(new StandardAnalyzer()));
+		Document document = new Document();
+		document.add(new TextField("Accession", "CY187610", Field.Store.YES));
+		document.add(new SortedNumericDocValuesField("SegmentLength", 1701));
+		writer.addDocument(document);
+		writer.commit();
+		DirectoryReader reader = DirectoryReader.open(directory);
+		assertEquals(1, IndexWarmer.warmNewLeaves(reader, null));
+		document = new Document();
+		document.add(new TextField("Accession", "CY187620", Field.Store.YES));
+		document.add(new SortedNumericDocValuesField("SegmentLength", 1702));
+		writer.addDocument(document);
+		writer.commit();
+		DirectoryReader newReader = DirectoryReader.openIfChanged(reader);
+		assertNotNull(newReader);
+		assertEquals(2, newReader.leaves().size());
+		assertEquals(1, IndexWarmer.warmNewLeaves(newReader, reader));
+		assertEquals(0, IndexWarmer.warmNewLeaves(newReader, newReader));
+		newReader.close();
+		reader.close();
+		writer.close();
+		directory.close();
+	}
+
+}
@@ -0,0 +1,44 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class LocationSuggesterTest {
+
+	@Test
+	public void testSuggest() throws IOException {
+		Map<String, Long> costs = new HashMap<String, Long>();
+		putAll(costs, 5308655L, 1445632L, "Phoenix", "Phoenix, Maricopa, Arizona");
+		putAll(costs, 5735238L, 4538L, "Phoenix", "Phoenix, Jackson, Oregon");
+		putAll(costs, 5551752L, 5863809L, "Arizona", "Arizona, United States");
+		putAll(costs, 4905873L, 2000L, "Phillipsburg", "Phillipsburg, Kansas");
+		LocationSuggester suggester = LocationSuggester.build(costs, 5);
+		assertEquals(Arrays.asList(5308655L, 5735238L, 4905873L), suggester.suggest("Ph", 10));
+		assertEquals(Arrays.asList(5308655L, 5735238L), suggester.suggest("phoenix", 2));
+		assertEquals(Arrays.asList(5735238L), suggester.suggest("Phoenix, Ore", 10));
+		assertEquals(Arrays.asList(5308655L), suggester.suggest("phoenix,maricopa,ari", 10));
+		assertEquals(Collections.emptyList(), suggester.suggest("Tempe", 10));
+		assertEquals(Collections.emptyList(), suggester.suggest("  ", 10));
+	}
+
+	@Test
+	public void testCostOf() {
+		assertTrue(LocationSuggester.costOf(1000L) < LocationSuggester.costOf(10L));
+		assertEquals(LocationSuggester.costOf(0L), LocationSuggester.costOf(-5L));
+		assertEquals(0L, LocationSuggester.costOf(Long.MAX_VALUE));
+	}
+
+	private static void putAll(Map<String, Long> costs, long geonameId, long population, String name, String ancestorNames) {
+		for (String key : GeonameGazetteer.keysFor(name, ancestorNames)) {
+			costs.put(key + (char) 0x1F + geonameId, LocationSuggester.costOf(population));
+		}
+	}
+
+}
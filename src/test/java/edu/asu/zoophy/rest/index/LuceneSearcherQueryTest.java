@@ -0,0 +1,42 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.queryparser.classic.QueryParser;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.ConstantScoreQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.TermQuery;
+import org.junit.Test;
+
+public class LuceneSearcherQueryTest {
+
+	private static Query parse(String querystring) throws ParseException {
+		return new QueryParser("Accession", new StandardAnalyzer()).parse(querystring);
+	}
+
+	@Test
+	public void testScoringQueries() throws ParseException {
+		assertFalse(LuceneSearcher.isFilterOnly(parse("OrganismID:197911")));
+		assertFalse(LuceneSearcher.isFilterOnly(parse("OrganismID:197911 AND Country:mexico")));
+		assertFalse(LuceneSearcher.isFilterOnly(parse("Country:mexico OR Date:[2009 TO 2010]")));
+		assertFalse(LuceneSearcher.isFilterOnly(parse("NormalizedDate:[20090101 TO 20101231] AND Country:mexico")));
+	}
+
+	@Test
+	public void testFilterOnlyQueries() throws ParseException {
+		assertTrue(LuceneSearcher.isFilterOnly(parse("*:*")));
+		assertTrue(LuceneSearcher.isFilterOnly(parse("NormalizedDate:[20090101 TO 20101231]")));
+		assertTrue(LuceneSearcher.isFilterOnly(parse("Accession:CY1876*")));
+		assertTrue(LuceneSearcher.isFilterOnly(parse("+NormalizedDate:[20090101 TO 20101231] +Accession:CY1876* -Country:mexico")));
+		assertTrue(LuceneSearcher.isFilterOnly(new ConstantScoreQuery(parse("OrganismID:197911"))));
+		BooleanQuery.Builder builder = new BooleanQuery.Builder();
+		builder.add(new TermQuery(new Term("OrganismID", "197911")), BooleanClause.Occur.FILTER);
+		assertTrue(LuceneSearcher.isFilterOnly(builder.build()));
+	}
+
+}
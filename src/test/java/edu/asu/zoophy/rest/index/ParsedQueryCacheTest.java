@@ -0,0 +1,43 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import org.apache.lucene.analysis.standard.StandardAnalyzer;
+import org.apache.lucene.queryparser.classic.ParseException;
+import org.apache.lucene.search.Query;
+import org.junit.Test;
+
+public class ParsedQueryCacheTest {
+
+	@Test
+	public void testCachesNormalizedQueries() throws ParseException {
+		ParsedQueryCache cache = new ParsedQueryCache("Accession", new StandardAnalyzer(), 10);
+		Query first = cache.getQuery("OrganismID:197911 AND Country:Mexico");
+		Query second = cache.getQuery("  OrganismID:197911   AND Country:Mexico ");
+		assertSame(first, second);
+		assertEquals(1, cache.size());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getMisses());
+	}
+
+	@Test
+	public void testEvictsLeastRecentlyUsed() throws ParseException {
+		ParsedQueryCache cache = new ParsedQueryCache("Accession", new StandardAnalyzer(), 2);
+		Query first = cache.getQuery("OrganismID:1");
+		cache.getQuery("OrganismID:2");
+		cache.getQuery("OrganismID:1");
+		cache.getQuery("OrganismID:3");
+		assertEquals(2, cache.size());
+		assertSame(first, cache.getQuery("OrganismID:1"));
+		assertEquals(2, cache.getHits());
+		cache.getQuery("OrganismID:2");
+		assertEquals(4, cache.getMisses());
+	}
+
+	@Test(expected = ParseException.class)
+	public void testInvalidQuery() throws ParseException {
+		ParsedQueryCache cache = new ParsedQueryCache("Accession", new StandardAnalyzer(), 10);
+		cache.getQuery("Accession:(CY187660");
+	}
+
+}
@@ -0,0 +1,28 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import java.util.Set;
+
+import org.junit.Test;
+
+public class RecordFieldTest {
+
+	@Test
+	public void testParse() {
+		Set<RecordField> fields = RecordField.parse("date, Country,");
+		assertEquals(3, fields.size());
+		assertTrue(fields.contains(RecordField.ACCESSION));
+		assertTrue(fields.contains(RecordField.DATE));
+		assertTrue(fields.contains(RecordField.COUNTRY));
+		Set<String> indexFields = RecordField.indexFieldsFor(fields);
+		assertEquals(4, indexFields.size());
+		assertTrue(indexFields.contains("NormalizedDate"));
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void testUnknownField() {
+		RecordField.parse("accession,sequence");
+	}
+
+}
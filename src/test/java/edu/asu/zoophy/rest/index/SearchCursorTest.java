@@ -0,0 +1,40 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import edu.asu.zoophy.rest.security.SecurityHelper;
+
+public class SearchCursorTest {
+
+	@Test
+	public void testRoundTrip() throws InvalidLuceneQueryException {
+		SearchCursor cursor = new SearchCursor(1234567890123L, 987654, SearchCursor.hashQuery("OrganismID:197911 AND Country:Mexico"));
+		String encoded = cursor.encode();
+		assertTrue(encoded.matches(SecurityHelper.SEARCH_CURSOR_REGEX));
+		SearchCursor decoded = SearchCursor.decode(encoded);
+		assertEquals(1234567890123L, decoded.getSearcherVersion());
+		assertEquals(987654, decoded.getLastDoc());
+		assertEquals(cursor.getQueryHash(), decoded.getQueryHash());
+	}
+
+	@Test
+	public void testBoundToQuery() throws InvalidLuceneQueryException {
+		SearchCursor decoded = SearchCursor.decode(new SearchCursor(42L, 100, SearchCursor.hashQuery("OrganismID:197911")).encode());
+		assertTrue(decoded.isForQuery("OrganismID:197911"));
+		assertTrue(decoded.isForQuery("  OrganismID:197911 "));
+		assertFalse(decoded.isForQuery("OrganismID:114727"));
+	}
+
+	@Test(expected = InvalidLuceneQueryException.class)
+	public void testMalformedCursor() throws InvalidLuceneQueryException {
+		SearchCursor.decode("bm90LWEtY3Vyc29y");
+	}
+
+	@Test(expected = InvalidLuceneQueryException.class)
+	public void testCursorWithoutQuery() throws InvalidLuceneQueryException {
+		SearchCursor.decode("MTIzOjQ1");
+	}
+
+}
@@ -0,0 +1,68 @@
+package edu.asu.zoophy.rest.index;
+
+import static org.junit.Assert.*;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import org.junit.Test;
+
+import edu.asu.zoophy.rest.genbank.GenBankRecord;
+
+public class SearchResultCacheTest {
+
+	private static List<GenBankRecord> makeRecords(String... accessions) {
+		List<GenBankRecord> records = new LinkedList<GenBankRecord>();
+		for (String accession : accessions) {
+			GenBankRecord record = new GenBankRecord();
+			record.setAccession(accession);
+			records.add(record);
+		}
+		return records;
+	}
+
+	@Test
+	public void testRecordsAndCounts() {
+		SearchResultCache cache = new SearchResultCache(1024 * 1024);
+		assertNull(cache.getRecords("OrganismID:197911", 100, 1));
+		cache.putRecords("OrganismID:197911", 100, 1, makeRecords("CY187660", "CY187661"));
+		List<GenBankRecord> cached = cache.getRecords(" OrganismID:197911 ", 100, 1);
+		assertNotNull(cached);
+		assertEquals(2, cached.size());
+		cached.clear();
+		assertEquals(2, cache.getRecords("OrganismID:197911", 100, 1).size());
+		assertNull(cache.getRecords("OrganismID:197911", 50, 1));
+		cache.putCount("OrganismID:197911", 1, 42);
+		assertEquals(Integer.valueOf(42), cache.getCount("OrganismID:197911", 1));
+		assertEquals(3, cache.getHits());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void testNewGenerationInvalidates() {
+		SearchResultCache cache = new SearchResultCache(1024 * 1024);
+		cache.putRecords("OrganismID:197911", 100, 1, makeRecords("CY187660"));
+		cache.putCount("OrganismID:197911", 1, 1);
+		assertNull(cache.getRecords("OrganismID:197911", 100, 2));
+		assertEquals(0, cache.size());
+		assertEquals(0, cache.getWeight());
+		cache.putCount("OrganismID:197911", 1, 1);
+		assertNull(cache.getCount("OrganismID:197911", 2));
+	}
+
+	@Test
+	public void testWeightBound() {
+		List<GenBankRecord> records = makeRecords("CY187660", "CY187661", "CY187662");
+		long single = SearchResultCache.estimateWeight(records.get(0));
+		assertTrue(single > 0);
+		SearchResultCache cache = new SearchResultCache(single * 5);
+		cache.putRecords("a", 10, 1, records);
+		cache.putRecords("b", 10, 1, records);
+		assertEquals(1, cache.size());
+		assertNull(cache.getRecords("a", 10, 1));
+		assertNotNull(cache.getRecords("b", 10, 1));
+		assertEquals(1, cache.getEvictions());
+		assertTrue(cache.getWeight() <= single * 5);
+	}
+
+}
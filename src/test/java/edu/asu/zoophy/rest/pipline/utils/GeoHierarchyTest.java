@@ -0,0 +1,44 @@
+package edu.asu.zoophy.rest.pipline.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import edu.asu.zoophy.rest.pipeline.utils.GeoHierarchy;
+import edu.asu.zoophy.rest.pipeline.utils.GeoHierarchyException;
+
+/**
+ * Test cases for GeoHierarchy
+ * @author devdemetri
+ */
+public class GeoHierarchyTest {
+
+	@Test
+	public void testIsParent() throws GeoHierarchyException {
+		GeoHierarchy hierarchy = GeoHierarchy.getInstance();
+		assertSame(hierarchy, GeoHierarchy.getInstance());
+		assertTrue(hierarchy.isParent("PCLI", "CONT"));
+		assertTrue(hierarchy.isParent("ADM1", "PCLD"));
+		assertTrue(hierarchy.isParent("ADM2H", "ADM1H"));
+		assertTrue(hierarchy.isParent("ADM3", "PCLI"));
+		assertTrue(hierarchy.isParent("PPLA2", "ADM1"));
+		assertTrue(hierarchy.isParent("PPLC", "CONT"));
+		assertFalse(hierarchy.isParent("ADM1", "ADM1"));
+		assertFalse(hierarchy.isParent("ADM1", "ADM2"));
+		assertFalse(hierarchy.isParent("ADM1", "ADM1H"));
+		assertFalse(hierarchy.isParent("PPL", "PPLA"));
+		assertFalse(hierarchy.isParent("CONT", "CONT"));
+		assertFalse(hierarchy.isParent("ADM2", "UNKNOWN"));
+		assertFalse(hierarchy.isParent("ADM2", null));
+	}
+
+	@Test
+	public void testUnknownChildIsPopulatedPlace() throws GeoHierarchyException {
+		GeoHierarchy hierarchy = GeoHierarchy.getInstance();
+		assertTrue(hierarchy.isParent("HTL", "ADM4"));
+		assertTrue(hierarchy.isParent(null, "PCLI"));
+		assertFalse(hierarchy.isParent("HTL", "PPLX"));
+		assertFalse(hierarchy.isParent("HTL", "PPL"));
+	}
+
+}
@@ -11,7 +11,9 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.test.context.junit4.SpringRunner;
 
+import edu.asu.zoophy.rest.genbank.ExcludedRecords;
 import edu.asu.zoophy.rest.genbank.GenBankRecord;
+import edu.asu.zoophy.rest.genbank.InvalidRecords;
 import edu.asu.zoophy.rest.genbank.JobRecords;
 import edu.asu.zoophy.rest.genbank.Location;
 import edu.asu.zoophy.rest.index.LuceneHierarchySearcher;
@@ -107,6 +109,52 @@ public class GeonameDisjoinerTest {
 		}
 	}
 	
+	/*
+	 * Countries disjoined in parallel should give the same valid, invalid and distinct locations as the sequential mode,
+	 * including the country level rerun in specialCase1 and the too many locations error
+	 */
+	@Test
+	public void testParallelMatchesSequential() {
+		try {
+			GeonameDisjoiner sequential = new GeonameDisjoiner(hierarchyIndexSearcher, 1);
+			GeonameDisjoiner parallel = new GeonameDisjoiner(hierarchyIndexSearcher, 4);
+			assertEquals(describe(sequential, specialCase2()), describe(parallel, specialCase2()));
+			String rerun = describe(sequential, specialCase1());
+			assertTrue(rerun.startsWith("25 distinct"));
+			assertEquals(rerun, describe(parallel, specialCase1()));
+			String tooMany = describe(sequential, tooManyParameter());
+			assertTrue(tooMany.startsWith("Too many distinct locations"));
+			assertEquals(tooMany, describe(parallel, tooManyParameter()));
+		} catch (PipelineException e) {
+			fail("Should not throw Pipeline Error : "+ e.getUserMessage());
+		}
+	}
+	
+	/**
+	 * Summarizes a disjoiner run, or the error it failed with
+	 * @return distinct location count, each valid record's location, and each invalid reason with its accessions
+	 */
+	private String describe(GeonameDisjoiner disjoiner, List<GenBankRecord> records) {
+		StringBuilder result = new StringBuilder();
+		try {
+			JobRecords jobRecords = disjoiner.disjoinRecords(records);
+			result.append(jobRecords.getDistinctLocations()).append(" distinct\n");
+			for (GenBankRecord record : jobRecords.getValidRecordList()) {
+				result.append(record.getAccession()).append(" ").append(record.getGeonameLocation().getGeonameID()).append("\n");
+			}
+			for (InvalidRecords invalid : jobRecords.getInvalidRecordList()) {
+				result.append(invalid.getReason());
+				for (ExcludedRecords excluded : invalid.getExcludedRecords()) {
+					result.append(" ").append(excluded.getAccession());
+				}
+				result.append("\n");
+			}
+		} catch (PipelineException e) {
+			result.append(e.getUserMessage());
+		}
+		return result.toString();
+	}
+	
 	private List<GenBankRecord> testUSParameter() {
 		/* United States - Maryland(ADM1),California(ADM1),Nevada(ADM1),Utah(ADM1),
 		 		Minnesota(ADM1),New York(ADM1),New York(ADM1),United states(PCLI) */
@@ -0,0 +1,64 @@
+package edu.asu.zoophy.rest.pipline.utils;
+
+import static org.junit.Assert.*;
+
+import org.junit.Test;
+
+import edu.asu.zoophy.rest.genbank.Location;
+import edu.asu.zoophy.rest.pipeline.utils.LocationRegistry;
+
+/**
+ * Test cases for LocationRegistry
+ * @author devdemetri
+ */
+public class LocationRegistryTest {
+
+	@Test
+	public void testIntern() {
+		LocationRegistry registry = new LocationRegistry();
+		Location arizona = location(5551752L, "Arizona");
+		Location canonical = registry.intern(arizona);
+		assertSame(arizona, canonical);
+		assertSame(canonical, registry.intern(location(5551752L, "Arizona")));
+		assertSame(canonical, registry.intern(canonical));
+		assertSame(canonical, registry.get(5551752L));
+		assertNull(registry.get(6252001L));
+		assertEquals(1, registry.size());
+		Location placeholder = new Location();
+		placeholder.setLocation("United States");
+		assertSame(placeholder, registry.intern(placeholder));
+		assertNull(registry.intern(null));
+		assertEquals(1, registry.size());
+	}
+
+	@Test
+	public void testCanonicalIsShared() {
+		LocationRegistry registry = new LocationRegistry();
+		Location canonical = registry.intern(location(5551752L, "Arizona"));
+		canonical.setAccession("KX000001");
+		assertEquals("KX000001", registry.intern(location(5551752L, "Arizona")).getAccession());
+	}
+
+	@Test
+	public void testGrow() {
+		LocationRegistry registry = new LocationRegistry();
+		Location[] canonicals = new Location[5000];
+		for (int i = 0; i < canonicals.length; i++) {
+			canonicals[i] = registry.intern(location(i * 1024L, "Location "+i));
+		}
+		assertEquals(canonicals.length, registry.size());
+		for (int i = 0; i < canonicals.length; i++) {
+			assertSame(canonicals[i], registry.get(i * 1024L));
+			assertEquals("Location "+i, registry.get(i * 1024L).getLocation());
+		}
+	}
+
+	private static Location location(long geonameId, String name) {
+		Location location = new Location();
+		location.setGeonameID(geonameId);
+		location.setLocation(name);
+		location.setGeonameType("ADM1");
+		return location;
+	}
+
+}
@@ -33,6 +33,12 @@ public class SecurityHelperTest {
 		assertTrue(helper.checkParameter("T Virus Outbreak 2018", Parameter.JOB_NAME));
 		assertFalse(helper.checkParameter("Accession:--DROP TABLES-- AND TaxonID:9606", Parameter.LUCENE_QUERY));
 		assertTrue(helper.checkParameter("Accession:ABC12345 AND TaxonID:9606", Parameter.LUCENE_QUERY));
+		assertFalse(helper.checkParameter("MTk6Mmc=", Parameter.SEARCH_CURSOR));
+		assertTrue(helper.checkParameter("MTk6Mmc", Parameter.SEARCH_CURSOR));
+		assertTrue(helper.checkParameter("5308655", Parameter.LOCATION));
+		assertTrue(helper.checkParameter("Phoenix, Arizona", Parameter.LOCATION));
+		assertTrue(helper.checkParameter("33.45, -112.07", Parameter.LOCATION));
+		assertFalse(helper.checkParameter("33.45; -112.07", Parameter.LOCATION));
 	}
 	
 	@Test